@@ -0,0 +1,65 @@
+package io.github.zannabianca1997.apelle.queues.models;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The position math of the current song, computed at each read of a queue
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CurrentSongBenchmark {
+
+    private CurrentSong playing;
+    private CurrentSong stopped;
+
+    @Setup
+    public void createSongs() {
+        playing = CurrentSong.builder().song(QueueBenchmark.song(0))
+                .playing().startsAt(Instant.now().minus(Duration.ofMinutes(1)))
+                .build();
+        stopped = CurrentSong.builder().song(QueueBenchmark.song(1))
+                .stopped()
+                .build();
+    }
+
+    @Benchmark
+    public Duration playingPosition() {
+        return playing.getPosition();
+    }
+
+    @Benchmark
+    public Instant playingStartsAt() {
+        return playing.getStartsAt();
+    }
+
+    @Benchmark
+    public boolean playingIsStopped() {
+        return playing.isStopped();
+    }
+
+    @Benchmark
+    public Duration stoppedPosition() {
+        return stopped.getPosition();
+    }
+
+    @Benchmark
+    public Instant stoppedStartsAt() {
+        return stopped.getStartsAt();
+    }
+
+    @Benchmark
+    public boolean stoppedIsStopped() {
+        return stopped.isStopped();
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.zannabianca1997.apelle.queues.models;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+
+/**
+ * Operations on the songs list of a queue.
+ *
+ * Only the in memory part of each operation is measured, the queue is never
+ * saved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueBenchmark {
+
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int queueSize;
+
+    private Queue queue;
+    private Song newSong;
+    private SplittableRandom random;
+
+    static YoutubeSong song(final int i) {
+        return YoutubeSong.builder()
+                .name("Benchmark song n. %d".formatted(i))
+                .duration(Duration.ofMinutes(3))
+                .videoId("bench%06d".formatted(i))
+                .build();
+    }
+
+    @Setup
+    public void createQueue() {
+        random = new SplittableRandom(42);
+        queue = Queue.builder()
+                .code("benchmark")
+                .config(new QueueConfig())
+                .build();
+
+        final Instant start = Instant.now().minus(Duration.ofDays(1));
+        final List<QueuedSong> queuedSongs = new ArrayList<>(queueSize + 1);
+        for (int i = 0; i < queueSize; i++) {
+            final QueuedSong queuedSong = QueuedSong.builder()
+                    .song(song(i))
+                    .queue(queue)
+                    .queuedAt(start.plusMillis(i))
+                    .build();
+            // Some songs are liked, as in a real party
+            queuedSong.setLikes((short) (random.nextInt(4) == 0 ? random.nextInt(1, 10) : 0));
+            queuedSongs.add(queuedSong);
+        }
+        queue.setQueuedSongs(queuedSongs);
+        queue.sortSongs();
+
+        newSong = song(queueSize);
+        queue.setCurrent(CurrentSong.builder().song(newSong).playing().startsAt(Instant.now()).build());
+    }
+
+    /**
+     * Add a song, then remove it to keep the size of the queue
+     */
+    @Benchmark
+    public QueuedSong enqueue() {
+        final QueuedSong added = queue.insert(newSong, Instant.now());
+        // New songs have no likes, so they are the last ones
+        queue.getQueuedSongs().remove(queue.getQueuedSongs().size() - 1);
+        return added;
+    }
+
+    /**
+     * Like a song, and sort the queue again
+     *
+     * The like is taken back afterwards, restoring the previous order, so the
+     * likes do not pile up and every invocation sorts the same queue.
+     */
+    @Benchmark
+    public Queue likeAndSort() {
+        final List<QueuedSong> queuedSongs = queue.getQueuedSongs();
+        final int position = random.nextInt(queueSize);
+        final QueuedSong liked = queuedSongs.get(position);
+        final short likes = liked.getLikes();
+
+        liked.setLikes((short) (likes + 1));
+        queue.sortSongs();
+
+        // A like can only move the song up
+        int moved = position;
+        while (queuedSongs.get(moved) != liked) {
+            moved--;
+        }
+        liked.setLikes(likes);
+        queuedSongs.add(position, queuedSongs.remove(moved));
+        return queue;
+    }
+
+    /**
+     * Put the current song back in the queue, and play the first one
+     */
+    @Benchmark
+    public QueuedSong next() {
+        queue.insert(queue.getCurrent().getSong(), Instant.now());
+        queue.setCurrent(null);
+        return queue.playFirst();
+    }
+
+    /**
+     * Stop and start again the current song
+     */
+    @Benchmark
+    public boolean stopAndStart() {
+        queue.stop();
+        return queue.start();
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.zannabianca1997.apelle.queues.utils;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.github.zannabianca1997.apelle.queues.configs.QueueCodeConfigs;
+
+/**
+ * Generation of the queue codes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueueCodeBenchmark {
+    /** Same as the default configuration */
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private StringUtils stringUtils;
+    private QueueCodeAllocator allocator;
+    private SplittableRandom random;
+
+    @Setup
+    public void createGenerators() {
+        stringUtils = new StringUtils(new SecureRandom());
+        allocator = new QueueCodeAllocator(new QueueCodeConfigs() {
+            @Override
+            public String alphabet() {
+                return ALPHABET;
+            }
+
+            @Override
+            public long key() {
+                return 6879871542113254691L;
+            }
+
+            @Override
+            public CodeComplexityConfig complexity() {
+                return new CodeComplexityConfig() {
+                    @Override
+                    public int min() {
+                        return 3;
+                    }
+
+                    @Override
+                    public int margin() {
+                        return 1;
+                    }
+                };
+            }
+
+            @Override
+            public CodePoolConfig pool() {
+                return new CodePoolConfig() {
+                    @Override
+                    public int batchSize() {
+                        return 64;
+                    }
+
+                    @Override
+                    public int lowWatermark() {
+                        return 16;
+                    }
+                };
+            }
+        }, Logger.getLogger(QueueCodeAllocator.class));
+        random = new SplittableRandom(42);
+    }
+
+    /**
+     * A random code, as they were generated before the code sequence
+     */
+    @Benchmark
+    public String randomCode() {
+        return stringUtils.random(3, ALPHABET);
+    }
+
+    /**
+     * A code from the sequence, in the first tiers
+     */
+    @Benchmark
+    public String sequenceCode() {
+        return allocator.code(random.nextLong(1_000_000));
+    }
+}
@@ -2,9 +2,11 @@ package io.github.zannabianca1997.apelle.queues.utils;
 
 import java.security.SecureRandom;
 
-import jakarta.enterprise.context.ApplicationScoped;
-
-@ApplicationScoped
+/**
+ * Random codes, as the queues had before the code sequence.
+ * 
+ * Kept only as the baseline of {@link QueueCodeBenchmark}.
+ */
 public class StringUtils {
     private final SecureRandom random;
 
@@ -0,0 +1,36 @@
+package io.github.zannabianca1997.apelle.common.configs;
+
+import java.time.Duration;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+/**
+ * Configuration of the on-demand flight recordings
+ */
+@ConfigMapping(prefix = "apelle.recording")
+public interface RecordingConfig {
+
+    /**
+     * Settings of the recording, either `default` or `profile`.
+     *
+     * `default` is safe to keep running on a live server, `profile` samples more
+     * often and collects the allocations.
+     */
+    @WithDefault("default")
+    String settings();
+
+    /**
+     * Time after which the recording stops by itself, if nobody stopped it
+     */
+    @WithDefault("PT10M")
+    Duration maxDuration();
+
+    /**
+     * Maximum size of the recorded data kept on disk. Older data is dropped
+     * first.
+     */
+    @WithDefault("256M")
+    MemorySize maxSize();
+}
@@ -0,0 +1,36 @@
+package io.github.zannabianca1997.apelle.common.dtos;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+@Schema(description = "State of the flight recording")
+public class RecordingQueryDto {
+    @NonNull
+    @JsonProperty(required = true)
+    @Schema(description = "State of the recording, `RUNNING` until it is stopped or reaches its maximum duration")
+    private String state;
+
+    @JsonProperty("started_at")
+    @Schema(description = "When the recording started")
+    private Instant startedAt;
+
+    @JsonProperty("max_duration")
+    @Schema(description = "Time after which the recording stops by itself")
+    private Duration maxDuration;
+
+    @JsonProperty(required = true)
+    @Schema(description = "Size in bytes of the data recorded until now")
+    private long size;
+}
@@ -0,0 +1,27 @@
+package io.github.zannabianca1997.apelle.common.exceptions;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+public class RecordingAlreadyRunningException extends Exception {
+    public RecordingAlreadyRunningException() {
+        super("A flight recording is already running, stop it before starting another one");
+    }
+
+    @Provider
+    @APIResponse(responseCode = "409", description = "A flight recording is already running", content = {
+            @Content(mediaType = "text/plain")
+    })
+    public static class Mapper implements ExceptionMapper<RecordingAlreadyRunningException> {
+        @Override
+        public Response toResponse(final RecordingAlreadyRunningException exception) {
+            return RestResponse.status(Status.CONFLICT, exception.getMessage()).toResponse();
+        }
+    }
+}
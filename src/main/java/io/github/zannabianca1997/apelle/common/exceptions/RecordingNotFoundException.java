@@ -0,0 +1,27 @@
+package io.github.zannabianca1997.apelle.common.exceptions;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+public class RecordingNotFoundException extends Exception {
+    public RecordingNotFoundException() {
+        super("No flight recording was started");
+    }
+
+    @Provider
+    @APIResponse(responseCode = "404", description = "No flight recording was started", content = {
+            @Content(mediaType = "text/plain")
+    })
+    public static class Mapper implements ExceptionMapper<RecordingNotFoundException> {
+        @Override
+        public Response toResponse(final RecordingNotFoundException exception) {
+            return RestResponse.status(Status.NOT_FOUND, exception.getMessage()).toResponse();
+        }
+    }
+}
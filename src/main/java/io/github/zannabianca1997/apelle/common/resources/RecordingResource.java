@@ -0,0 +1,96 @@
+package io.github.zannabianca1997.apelle.common.resources;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.ResponseStatus;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.jboss.resteasy.reactive.RestResponse.StatusCode;
+
+import io.github.zannabianca1997.apelle.common.dtos.RecordingQueryDto;
+import io.github.zannabianca1997.apelle.common.exceptions.RecordingAlreadyRunningException;
+import io.github.zannabianca1997.apelle.common.exceptions.RecordingNotFoundException;
+import io.github.zannabianca1997.apelle.common.services.RecordingService;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import jdk.jfr.Recording;
+
+@Path("/admin/recording")
+@Tag(name = "Admin", description = "Server administration")
+@RolesAllowed("ADMIN")
+public class RecordingResource {
+    private static final String JFR_MEDIA_TYPE = "application/octet-stream";
+
+    private final RecordingService recordingService;
+
+    public RecordingResource(final RecordingService recordingService) {
+        this.recordingService = recordingService;
+    }
+
+    private static RecordingQueryDto toDto(final Recording recording) {
+        return RecordingQueryDto.builder()
+                .state(recording.getState().name())
+                .startedAt(recording.getStartTime())
+                .maxDuration(recording.getDuration())
+                .size(recording.getSize())
+                .build();
+    }
+
+    @GET
+    @Operation(summary = "Get the flight recording", description = "Get the state of the current flight recording")
+    @APIResponse(responseCode = "200", description = "The current recording", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = RecordingQueryDto.class))
+    })
+    public RecordingQueryDto get() throws RecordingNotFoundException {
+        return toDto(recordingService.get());
+    }
+
+    @POST
+    @Operation(summary = "Start a flight recording", description = """
+            Start recording the server with the JDK flight recorder, including the queue operations, \
+            the event fan out and the youtube calls. The recording stops by itself after the configured \
+            maximum duration.""")
+    @APIResponse(responseCode = "201", description = "The recording started", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = RecordingQueryDto.class))
+    })
+    @ResponseStatus(StatusCode.CREATED)
+    public RecordingQueryDto start() throws RecordingAlreadyRunningException {
+        return toDto(recordingService.start());
+    }
+
+    @POST
+    @Path("/stop")
+    @Produces(JFR_MEDIA_TYPE)
+    @Operation(summary = "Stop the flight recording", description = """
+            Stop the current flight recording, and download it. The file can be opened with JDK Mission \
+            Control or the `jfr` tool.""")
+    @APIResponse(responseCode = "200", description = "The recorded data", content = {
+            @Content(mediaType = JFR_MEDIA_TYPE)
+    })
+    public RestResponse<StreamingOutput> stop() throws RecordingNotFoundException, IOException {
+        final java.nio.file.Path dump = recordingService.stop();
+        final StreamingOutput body = output -> {
+            try {
+                Files.copy(dump, output);
+            } finally {
+                Files.deleteIfExists(dump);
+            }
+        };
+        return RestResponse.ResponseBuilder.ok(body, MediaType.valueOf(JFR_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"apelle-%s.jfr\"".formatted(Instant.now().getEpochSecond()))
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.zannabianca1997.apelle.common.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.common.configs.RecordingConfig;
+import io.github.zannabianca1997.apelle.common.exceptions.RecordingAlreadyRunningException;
+import io.github.zannabianca1997.apelle.common.exceptions.RecordingNotFoundException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Start and stop flight recordings of the running server.
+ *
+ * At most one recording is kept at a time. It is bounded both in duration and
+ * in size, so a forgotten recording cannot fill the disk. The custom events of
+ * the application are enabled only while a recording is running.
+ */
+@ApplicationScoped
+public class RecordingService {
+    private static final String RECORDING_NAME = "apelle";
+
+    private final RecordingConfig config;
+    private final Logger log;
+
+    /** The last started recording, until it is stopped and downloaded */
+    private Recording recording = null;
+
+    public RecordingService(final RecordingConfig config, final Logger log) {
+        this.config = config;
+        this.log = log;
+    }
+
+    /**
+     * Start a new recording
+     * 
+     * @return The started recording
+     * @throws RecordingAlreadyRunningException Another recording is running
+     */
+    public synchronized Recording start() throws RecordingAlreadyRunningException {
+        if (recording != null) {
+            if (recording.getState() == RecordingState.RUNNING) {
+                throw new RecordingAlreadyRunningException();
+            }
+            // A recording that stopped by itself and was never downloaded
+            recording.close();
+        }
+
+        final Configuration settings;
+        try {
+            settings = Configuration.getConfiguration(config.settings());
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException(
+                    "Cannot load the flight recorder settings `%s`".formatted(config.settings()), e);
+        }
+
+        recording = new Recording(settings);
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setDuration(config.maxDuration());
+        recording.setMaxSize(config.maxSize().asLongValue());
+        recording.start();
+
+        log.infof("Started a flight recording with settings `%s`, stopping in %s at the latest",
+                config.settings(), config.maxDuration());
+        return recording;
+    }
+
+    /**
+     * Get the current recording
+     * 
+     * @return The recording, running or stopped
+     * @throws RecordingNotFoundException No recording was started
+     */
+    public synchronized Recording get() throws RecordingNotFoundException {
+        if (recording == null) {
+            throw new RecordingNotFoundException();
+        }
+        return recording;
+    }
+
+    /**
+     * Stop the current recording, and dump the recorded data.
+     * 
+     * The recording is discarded, so the next one can start.
+     * 
+     * @return A temporary file with the recorded data. The caller must delete it
+     * @throws RecordingNotFoundException No recording was started
+     * @throws IOException                The data could not be written
+     */
+    public synchronized Path stop() throws RecordingNotFoundException, IOException {
+        if (recording == null) {
+            throw new RecordingNotFoundException();
+        }
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            final Path dump = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+            recording.dump(dump);
+            log.infof("Stopped the flight recording, %s bytes recorded", Files.size(dump));
+            return dump;
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.zannabianca1997.apelle.queues.configs;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+/**
+ * Configuration of the queue events
+ */
+@ConfigMapping(prefix = "apelle.queue.events")
+public interface EventsConfig {
+
+    /**
+     * Oldest timings accepted with an acknowledgement.
+     * 
+     * The timings come from the clients, so older ones are rejected instead of
+     * skewing the recorded lags.
+     */
+    @WithDefault("PT5M")
+    Duration ackMaxAge();
+
+    /**
+     * How far in the future the timings of an acknowledgement can be.
+     * 
+     * Covers the clock differences between the nodes that stamped the event.
+     */
+    @WithDefault("PT1S")
+    Duration ackMaxClockSkew();
+}
@@ -4,6 +4,7 @@ import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 @ConfigMapping(prefix = "apelle.queue.code")
@@ -13,8 +14,20 @@ public interface QueueCodeConfigs {
     @WithDefault("ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789")
     String alphabet();
 
+    /**
+     * Key of the permutation mapping the code sequence to the codes.
+     * 
+     * Whoever knows it can compute the codes in use, so it has no default and
+     * must be kept secret. Changing it does not break uniqueness, as the
+     * allocator skips codes already in use, but it should be kept stable to
+     * avoid wasting codes.
+     */
+    long key();
+
     CodeComplexityConfig complexity();
 
+    CodePoolConfig pool();
+
     public interface CodeComplexityConfig {
         @Min(1)
         @WithDefault("3")
@@ -24,4 +37,16 @@ public interface QueueCodeConfigs {
         @WithDefault("1")
         int margin();
     }
+
+    public interface CodePoolConfig {
+        /** How many codes to allocate from the database at once */
+        @Positive
+        @WithDefault("64")
+        int batchSize();
+
+        /** When the pool falls under this size, a refill is started in the background */
+        @Min(0)
+        @WithDefault("16")
+        int lowWatermark();
+    }
 }
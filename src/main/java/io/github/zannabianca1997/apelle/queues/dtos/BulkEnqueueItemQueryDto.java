@@ -0,0 +1,25 @@
+package io.github.zannabianca1997.apelle.queues.dtos;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+@Schema(description = "Result of adding a single song in a bulk enqueue")
+public class BulkEnqueueItemQueryDto {
+    @NonNull
+    @JsonProperty(required = true)
+    @Schema(description = "What happened to the song")
+    private BulkEnqueueStatus status;
+
+    @JsonProperty("queued_song")
+    @Schema(description = "The enqueued song, if it was added")
+    private QueuedSongShortQueryDto queuedSong;
+}
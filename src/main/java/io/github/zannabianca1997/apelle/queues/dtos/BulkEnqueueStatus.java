@@ -0,0 +1,27 @@
+package io.github.zannabianca1997.apelle.queues.dtos;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of adding a song as part of a bulk enqueue
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Schema(description = "Outcome of adding a single song")
+public enum BulkEnqueueStatus {
+    /// The song was added to the queue
+    Added("added"),
+    /// The song was already in the queue, or repeated in the request
+    Duplicate("duplicate"),
+    /// The song could not be found
+    NotFound("not_found");
+
+    @JsonValue
+    @Getter
+    private final String value;
+}
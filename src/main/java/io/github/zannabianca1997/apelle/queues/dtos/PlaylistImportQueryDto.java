@@ -0,0 +1,31 @@
+package io.github.zannabianca1997.apelle.queues.dtos;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+@Schema(description = "Summary of a playlist import")
+public class PlaylistImportQueryDto {
+    @JsonProperty(required = true)
+    @Schema(description = "Number of songs added to the queue")
+    private int added;
+
+    @JsonProperty(required = true)
+    @Schema(description = "Number of songs skipped because already in the queue")
+    private int duplicate;
+
+    @JsonProperty(value = "not_found", required = true)
+    @Schema(description = "Number of songs that could not be found")
+    private int notFound;
+
+    @JsonProperty(required = true)
+    @Schema(description = "If the playlist was too long, and only the first songs were imported")
+    private boolean truncated;
+}
@@ -0,0 +1,40 @@
+package io.github.zannabianca1997.apelle.queues.dtos.events;
+
+import java.time.Instant;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+@Schema(description = """
+        When the event passed each stage on the server.
+
+        Clients can send it back to the acknowledgement endpoint when they receive the event,
+        to measure the total time the event took to reach them.""")
+public class EventTimingsDto {
+    @NotNull
+    @JsonProperty("mutated_at")
+    @Schema(description = "The change to the queue was made")
+    private Instant mutatedAt;
+    @JsonProperty("committed_at")
+    @Schema(description = "The change was committed")
+    private Instant committedAt;
+    @JsonProperty("delivered_at")
+    @Schema(description = "The event reached the stream of this client")
+    private Instant deliveredAt;
+    @JsonProperty("personalized_at")
+    @Schema(description = "The event was filled with the data of this client")
+    private Instant personalizedAt;
+    @NotNull
+    @JsonProperty("sent_at")
+    @Schema(description = "The event was sent to this client")
+    private Instant sentAt;
+}
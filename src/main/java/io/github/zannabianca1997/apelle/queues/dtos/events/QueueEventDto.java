@@ -2,6 +2,7 @@ package io.github.zannabianca1997.apelle.queues.dtos.events;
 
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonSubTypes.Type;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -33,5 +34,7 @@ import lombok.experimental.SuperBuilder;
         QueuedSongDeleteEventDto.class
 }, requiredProperties = { "kind" })
 public abstract class QueueEventDto {
-
+    @JsonProperty("timings")
+    @Schema(description = "When the event passed each stage on the server. Missing on the first message")
+    private EventTimingsDto timings;
 }
@@ -0,0 +1,37 @@
+package io.github.zannabianca1997.apelle.queues.events;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * When an event passed each stage on its way to a listener.
+ *
+ * Stages not yet reached are {@code null}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventTimings {
+    /** The change to the queue was made */
+    private Instant mutatedAt;
+    /** The transaction with the change completed */
+    private Instant committedAt;
+    /** The event reached the stream of a listener */
+    private Instant deliveredAt;
+    /** The event was filled with the data of the listener */
+    private Instant personalizedAt;
+    /** The event was handed to the connection of the listener */
+    private Instant sentAt;
+
+    /**
+     * Timings of an event for a change made now
+     */
+    public static EventTimings mutatedNow() {
+        return EventTimings.builder().mutatedAt(Instant.now()).build();
+    }
+}
@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
+import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.experimental.SuperBuilder;
@@ -20,4 +21,12 @@ public abstract class QueueEvent {
      */
     @NonNull
     private UUID queueId;
+
+    /**
+     * When the event passed each stage, to measure the time it takes to reach the
+     * listeners
+     */
+    @NonNull
+    @Builder.Default
+    private EventTimings timings = EventTimings.mutatedNow();
 }
@@ -0,0 +1,34 @@
+package io.github.zannabianca1997.apelle.queues.exceptions;
+
+import java.time.Instant;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.Getter;
+
+@Getter
+public class InvalidEventTimingsException extends Exception {
+    private final Instant timing;
+
+    public InvalidEventTimingsException(final String stage, final Instant timing) {
+        super(String.format("Timing `%s` of stage `%s` is not the one of a recent event", timing, stage));
+        this.timing = timing;
+    }
+
+    @Provider
+    @APIResponse(responseCode = "400", description = "The timings are not the ones of a recent event", content = {
+            @Content(mediaType = "text/plain")
+    })
+    public static class Mapper implements ExceptionMapper<InvalidEventTimingsException> {
+        @Override
+        public Response toResponse(final InvalidEventTimingsException exception) {
+            return RestResponse.status(Status.BAD_REQUEST, exception.getMessage()).toResponse();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.zannabianca1997.apelle.queues.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A queue event filled with the data of a listener, recorded by the flight
+ * recorder.
+ *
+ * The duration of the event is the time spent personalizing it.
+ */
+@Name("io.github.zannabianca1997.apelle.QueueEventPersonalization")
+@Label("Queue Event Personalization")
+@Category({ "Apelle", "Queues", "Events" })
+@Description("A queue event filled with the data of a listener")
+@StackTrace(false)
+public class QueueEventPersonalizationEvent extends jdk.jfr.Event {
+    @Label("Queue Id")
+    public String queueId;
+
+    @Label("Event Type")
+    public String type;
+
+    @Label("User Id")
+    public String userId;
+}
@@ -0,0 +1,27 @@
+package io.github.zannabianca1997.apelle.queues.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A queue event published to the listeners, recorded by the flight recorder.
+ */
+@Name("io.github.zannabianca1997.apelle.QueueFanOut")
+@Label("Queue Event Fan Out")
+@Category({ "Apelle", "Queues", "Events" })
+@Description("A queue event published to the listeners of the queue")
+@StackTrace(false)
+public class QueueFanOutEvent extends jdk.jfr.Event {
+    @Label("Queue Id")
+    public String queueId;
+
+    @Label("Event Type")
+    public String type;
+
+    @Label("Subscribers")
+    @Description("Event streams open on this node for the queue")
+    public int subscribers;
+}
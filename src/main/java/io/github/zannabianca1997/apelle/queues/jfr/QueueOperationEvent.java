@@ -0,0 +1,34 @@
+package io.github.zannabianca1997.apelle.queues.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A mutation of a queue, recorded by the flight recorder.
+ *
+ * The duration of the event is the time spent in the operation, before the
+ * commit.
+ */
+@Name("io.github.zannabianca1997.apelle.QueueOperation")
+@Label("Queue Operation")
+@Category({ "Apelle", "Queues" })
+@Description("A mutation of a queue")
+@StackTrace(false)
+public class QueueOperationEvent extends jdk.jfr.Event {
+    @Label("Queue Id")
+    public String queueId;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Queued Songs")
+    @Description("Songs in the queue after the operation, -1 if they were not loaded")
+    public int songs;
+
+    @Label("Failure")
+    @Description("Class of the exception that ended the operation, if any")
+    public String failure;
+}
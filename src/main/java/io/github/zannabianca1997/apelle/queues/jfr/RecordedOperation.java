@@ -0,0 +1,26 @@
+package io.github.zannabianca1997.apelle.queues.jfr;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import jakarta.enterprise.util.Nonbinding;
+import jakarta.interceptor.InterceptorBinding;
+
+/**
+ * Record the annotated method as a {@link QueueOperationEvent}.
+ *
+ * The queue is taken from the first parameter, either a queue or one of its
+ * songs.
+ */
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface RecordedOperation {
+    /**
+     * Name of the operation
+     */
+    @Nonbinding
+    String value();
+}
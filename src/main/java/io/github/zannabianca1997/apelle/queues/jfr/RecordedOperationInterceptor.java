@@ -0,0 +1,64 @@
+package io.github.zannabianca1997.apelle.queues.jfr;
+
+import org.hibernate.Hibernate;
+
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
+import jakarta.annotation.Priority;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Emit a {@link QueueOperationEvent} for each call of a
+ * {@link RecordedOperation} method.
+ *
+ * When no recording is running the event is disabled, and the call goes
+ * straight through.
+ */
+@RecordedOperation("")
+@Interceptor
+@Priority(Interceptor.Priority.LIBRARY_AFTER)
+public class RecordedOperationInterceptor {
+
+    @AroundInvoke
+    Object record(final InvocationContext context) throws Exception {
+        final QueueOperationEvent event = new QueueOperationEvent();
+        if (!event.isEnabled()) {
+            return context.proceed();
+        }
+
+        event.begin();
+        try {
+            return context.proceed();
+        } catch (final Exception e) {
+            event.failure = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = context.getInterceptorBinding(RecordedOperation.class).value();
+                final Queue queue = queueOf(context.getParameters());
+                if (queue != null) {
+                    event.queueId = queue.getId().toString();
+                    // Counting the songs must not load them
+                    event.songs = Hibernate.isInitialized(queue.getQueuedSongs())
+                            ? queue.getQueuedSongs().size()
+                            : -1;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private static Queue queueOf(final Object[] parameters) {
+        if (parameters.length == 0) {
+            return null;
+        }
+        return switch (parameters[0]) {
+            case final Queue queue -> queue;
+            case final QueuedSong song -> song.getQueue();
+            case null, default -> null;
+        };
+    }
+}
@@ -1,9 +1,11 @@
 package io.github.zannabianca1997.apelle.queues.mappers;
 
+import java.util.List;
 import java.util.function.Function;
 
 import org.mapstruct.Context;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import io.github.zannabianca1997.apelle.common.configs.MappersConfig;
 import io.github.zannabianca1997.apelle.queues.dtos.QueueQueryDto;
@@ -18,4 +20,10 @@ import io.github.zannabianca1997.apelle.queues.roles.mappers.QueueUserRoleMapper
 public interface QueueMapper {
     QueueQueryDto toDto(Queue queue,
             @Context Function<QueuedSong, Short> getUserLikes);
+
+    /**
+     * Map a queue, with the songs already read as projections
+     */
+    @Mapping(source = "songs", target = "queuedSongs")
+    QueueQueryDto toDto(Queue queue, List<QueuedSong.ShortView> songs);
 }
@@ -10,6 +10,7 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
 import io.github.zannabianca1997.apelle.common.configs.MappersConfig;
+import io.github.zannabianca1997.apelle.queues.dtos.BulkEnqueueItemQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.CurrentSongQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.QueuedSongQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.QueuedSongShortQueryDto;
@@ -17,6 +18,8 @@ import io.github.zannabianca1997.apelle.queues.dtos.SongQueryDto;
 import io.github.zannabianca1997.apelle.queues.models.CurrentSong;
 import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
 import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.services.QueueService.BulkEnqueueResult;
+import io.github.zannabianca1997.apelle.queues.services.QueueService.EnqueueResult;
 
 /**
  * Maps songs to dtos and back
@@ -31,11 +34,22 @@ public interface SongMapper {
     @Mapping(source = "queuedSong.song", target = ".")
     QueuedSongShortQueryDto toShortDto(QueuedSong queuedSong, short userLikes);
 
+    @Mapping(source = "songId", target = "id")
+    QueuedSongShortQueryDto toShortDto(QueuedSong.ShortView queuedSong);
+
     default QueuedSongShortQueryDto toShortDto(final QueuedSong queuedSong,
             @Context final Function<QueuedSong, Short> getUserLikes) {
         return toShortDto(queuedSong, getUserLikes.apply(queuedSong));
     }
 
+    default BulkEnqueueItemQueryDto toDto(final BulkEnqueueResult bulkEnqueueResult) {
+        final EnqueueResult enqueued = bulkEnqueueResult.enqueued();
+        return BulkEnqueueItemQueryDto.builder()
+                .status(bulkEnqueueResult.status())
+                .queuedSong(enqueued != null ? toShortDto(enqueued.queuedSong(), enqueued.autolikes()) : null)
+                .build();
+    }
+
     @Mapping(source = "queuedSong.likes", target = "likes")
     @Mapping(source = "queuedSong.song", target = ".")
     @Mapping(source = "queuedSong.song.uri", target = "url")
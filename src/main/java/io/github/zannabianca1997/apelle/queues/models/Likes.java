@@ -1,7 +1,10 @@
 package io.github.zannabianca1997.apelle.queues.models;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.hibernate.annotations.Check;
 import org.hibernate.annotations.OnDelete;
@@ -94,9 +97,17 @@ public class Likes extends PanacheEntityBase {
         return findById(id);
     }
 
-    public static Likes findOldests(final QueueUser user) {
-        return find("user = ?1 AND song.queue = ?2 ORDER BY givenAt ASC", user.getUser(), user.getQueue())
-                .firstResult();
+    /**
+     * Find the likes given by a user in a queue, oldest first
+     * 
+     * They are at most the maximum likes of the user, so they are read all at
+     * once: removing them one by one does not need to query again.
+     * 
+     * @param user The user of the queue
+     * @return The likes, oldest first
+     */
+    public static List<Likes> findOldests(final QueueUser user) {
+        return list("user = ?1 AND song.queue = ?2 ORDER BY givenAt ASC", user.getUser(), user.getQueue());
     }
 
     public static short givenBy(final UUID userId, final QueuedSong song) {
@@ -107,7 +118,41 @@ public class Likes extends PanacheEntityBase {
                 .getSingleResult();
     }
 
+    /**
+     * Count the likes given by a user to all the songs of a queue, in a single
+     * query
+     * 
+     * @param userId  The user liking the songs
+     * @param queueId The queue
+     * @return The likes given, by song id. Songs with no likes are missing
+     */
+    public static Map<UUID, Short> givenBy(final UUID userId, final UUID queueId) {
+        return getSession()
+                .createSelectionQuery("""
+                        SELECT l.song.song.id, SUM(l.count) FROM Likes l
+                        WHERE l.user.id = :userId AND l.song.queue.id = :queueId
+                        GROUP BY l.song.song.id""", Object[].class)
+                .setParameter("userId", userId)
+                .setParameter("queueId", queueId)
+                .getResultStream()
+                .collect(Collectors.toMap(row -> (UUID) row[0], row -> ((Number) row[1]).shortValue()));
+    }
+
+    /**
+     * Delete all the likes given to a queued song
+     * 
+     * The pending changes are flushed first only if some of them touch the
+     * likes, as a new like of the song must be inserted before it is deleted.
+     * Pending changes to the queue and its songs alone stay in the batches of
+     * the commit.
+     * 
+     * @param song The queued song
+     * @return The number of deleted rows
+     */
     public static long deleteReferringTo(final QueuedSong song) {
-        return delete("song = ?1", song);
+        return getSession()
+                .createMutationQuery("DELETE FROM Likes WHERE song = :song")
+                .setParameter("song", song)
+                .executeUpdate();
     }
 }
@@ -6,7 +6,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -144,10 +146,34 @@ public class Queue extends PanacheEntityBase {
      * @return The added song
      */
     public QueuedSong enqueue(@NonNull final Song song) {
+        return enqueue(song, Instant.now());
+    }
+
+    /**
+     * Add a new song to the queue, as if it was added at a given time
+     * 
+     * @param song     The song to add
+     * @param queuedAt The time the song was added
+     * @return The added song
+     */
+    public QueuedSong enqueue(@NonNull final Song song, @NonNull final Instant queuedAt) {
+        final var enqueued = insert(song, queuedAt);
+        enqueued.persist();
+        return enqueued;
+    }
+
+    /**
+     * Put a new song in its position in the queue, without saving it
+     * 
+     * @param song     The song to add
+     * @param queuedAt The time the song was added
+     * @return The added song
+     */
+    QueuedSong insert(@NonNull final Song song, @NonNull final Instant queuedAt) {
         final var enqueued = QueuedSong.builder()
                 .song(song)
                 .queue(this)
-                .queuedAt(Instant.now())
+                .queuedAt(queuedAt)
                 .build();
         // Add the song in the correct position
         int index = Collections.binarySearch(this.queuedSongs, enqueued, QUEUED_SONGS_COMPARATOR);
@@ -161,8 +187,6 @@ public class Queue extends PanacheEntityBase {
         editQueuedSongs.add(index, enqueued);
         setQueuedSongs(editQueuedSongs);
 
-        enqueued.persist();
-
         return enqueued;
     }
 
@@ -187,15 +211,33 @@ public class Queue extends PanacheEntityBase {
             throw new CantPlayEmptyQueueException(getId());
         }
 
+        Likes.deleteReferringTo(playFirst());
+        return true;
+    }
+
+    /**
+     * Remove the first song from the queue and start playing it, without
+     * touching the database
+     * 
+     * @return The removed song
+     */
+    QueuedSong playFirst() {
         final QueuedSong next = getQueuedSongs().remove(0);
-        Likes.deleteReferringTo(next);
+        play(next);
+        return next;
+    }
+
+    /**
+     * Make a song removed from the queue the current one
+     */
+    private void play(final QueuedSong next) {
+        next.getSong().countPlay();
         setCurrent(CurrentSong.builder()
                 .song(next.getSong())
                 .playing().startsAt(Instant.now())
                 .build());
 
         setPlayerStateId();
-        return true;
     }
 
     /**
@@ -251,13 +293,7 @@ public class Queue extends PanacheEntityBase {
         getQueuedSongs().removeIf(s -> s.getSong().getId().equals(next.getSong().getId()));
 
         Likes.deleteReferringTo(next);
-
-        setCurrent(CurrentSong.builder()
-                .song(next.getSong())
-                .playing().startsAt(Instant.now())
-                .build());
-
-        setPlayerStateId();
+        play(next);
     }
 
     /**
@@ -285,7 +321,29 @@ public class Queue extends PanacheEntityBase {
         return Queue.<Queue>find("code", queueCode).singleResultOptional().orElse(null);
     }
 
-    public static boolean existByCode(final String queueCode) {
-        return Queue.find("code", queueCode).count() > 0;
+    /**
+     * Advance the code sequence
+     * 
+     * @param count How many values to take
+     * @return The values taken from the sequence
+     */
+    public static List<Long> nextCodeIndexes(final int count) {
+        return getSession()
+                .createNativeQuery("SELECT nextval('queue_code_seq') FROM generate_series(1, :count)", Long.class)
+                .setParameter("count", count)
+                .getResultList();
+    }
+
+    /**
+     * Find which of the given codes are already used
+     * 
+     * @param queueCodes The codes to check
+     * @return The codes in use
+     */
+    public static Set<String> findUsedCodes(final Collection<String> queueCodes) {
+        return new HashSet<>(getSession()
+                .createSelectionQuery("SELECT code FROM Queue WHERE code IN :codes", String.class)
+                .setParameter("codes", queueCodes)
+                .getResultList());
     }
 }
@@ -3,9 +3,12 @@ package io.github.zannabianca1997.apelle.queues.models;
 import java.util.UUID;
 
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import io.github.zannabianca1997.apelle.queues.roles.models.QueueUserRole;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -28,6 +31,8 @@ import lombok.ToString;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Entity
 @Table(name = "queue_config")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class QueueConfig extends PanacheEntityBase {
 
     @Id
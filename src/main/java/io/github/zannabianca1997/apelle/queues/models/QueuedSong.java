@@ -1,9 +1,14 @@
 package io.github.zannabianca1997.apelle.queues.models;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.hibernate.annotations.Formula;
+import org.hibernate.type.StandardBasicTypes;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.CascadeType;
@@ -80,4 +85,79 @@ public class QueuedSong extends PanacheEntityBase {
         return findById(id);
     }
 
+    /**
+     * A queued song, as shown in the list of a queue
+     * 
+     * @param songId    The id of the song
+     * @param name      The name of the song
+     * @param queuedAt  When the song was added
+     * @param likes     The likes received
+     * @param userLikes The likes given by the user the list is shown to
+     */
+    public record ShortView(UUID songId, String name, Instant queuedAt, short likes, short userLikes) {
+    }
+
+    /**
+     * Read the songs in a queue, as seen by a user.
+     * 
+     * Only the shown columns are read, without loading any entity. The likes are
+     * summed by joining them to the songs, so the cost does not depend on how
+     * many likes each song has. Only the likes on the songs of the queue are
+     * summed, both the total and the ones given by the user in a single pass.
+     * 
+     * @param queueId The id of the queue
+     * @param userId  The id of the user
+     * @return The songs, in queue order
+     */
+    public static List<ShortView> findShortViews(final @NonNull UUID queueId, final @NonNull UUID userId) {
+        return getSession().createNativeQuery("""
+                SELECT s.id, s.name, qs.queued_at,
+                    CAST(COALESCE(l.likes, 0) AS SMALLINT) AS likes,
+                    CAST(COALESCE(l.user_likes, 0) AS SMALLINT) AS user_likes
+                FROM queued_song qs
+                JOIN song s ON s.id = qs.song_id
+                LEFT JOIN (
+                    SELECT lk.queued_song_ref,
+                        SUM(lk.count) AS likes,
+                        SUM(lk.count) FILTER (WHERE lk.user_id = :userId) AS user_likes
+                    FROM likes lk
+                    JOIN queued_song lqs ON lqs.ref = lk.queued_song_ref
+                    WHERE lqs.queue_id = :queueId
+                    GROUP BY lk.queued_song_ref
+                ) l ON l.queued_song_ref = qs.ref
+                WHERE qs.queue_id = :queueId
+                ORDER BY likes DESC, qs.queued_at ASC""", Object[].class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("name", StandardBasicTypes.STRING)
+                .addScalar("queued_at", StandardBasicTypes.INSTANT)
+                .addScalar("likes", StandardBasicTypes.SHORT)
+                .addScalar("user_likes", StandardBasicTypes.SHORT)
+                .setParameter("queueId", queueId)
+                .setParameter("userId", userId)
+                .setReadOnly(true)
+                .getResultStream()
+                .map(row -> new ShortView((UUID) row[0], (String) row[1], (Instant) row[2], (Short) row[3],
+                        (Short) row[4]))
+                .toList();
+    }
+
+    /**
+     * Find which of the given songs are queued
+     * 
+     * @param songIds The ids of the songs to check
+     * @param queue   The queue
+     * @return The ids of the songs in the queue
+     */
+    public static Set<UUID> findQueuedSongIds(final @NonNull Collection<UUID> songIds, final @NonNull Queue queue) {
+        if (songIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(getSession()
+                .createSelectionQuery("SELECT song.id FROM QueuedSong WHERE queue = :queue AND song.id IN :songIds",
+                        UUID.class)
+                .setParameter("queue", queue)
+                .setParameter("songIds", songIds)
+                .getResultList());
+    }
+
 }
@@ -2,11 +2,15 @@ package io.github.zannabianca1997.apelle.queues.models;
 
 import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.MutationQuery;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -37,6 +41,9 @@ import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "song")
 /// A song inserted in a queue
+///
+/// Songs are not kept in the second level cache: their popularity counters
+/// change on every node, while the cache is local to each of them.
 public abstract class Song extends PanacheEntityBase {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -60,6 +67,18 @@ public abstract class Song extends PanacheEntityBase {
     /// The queues this song is inside
     private Collection<QueuedSong> queues;
 
+    @Column(name = "enqueue_count", nullable = false, updatable = false)
+    /// Number of times the song was added to a queue
+    ///
+    /// Never written back from the entity: see [#countEnqueues(Collection)]
+    private long enqueueCount;
+
+    @Column(name = "play_count", nullable = false, updatable = false)
+    /// Number of times the song started playing
+    ///
+    /// Never written back from the entity: see [#countPlay()]
+    private long playCount;
+
     /**
      * 
      * @return The song kind
@@ -93,6 +112,114 @@ public abstract class Song extends PanacheEntityBase {
         this.duration = duration;
     }
 
+    /**
+     * Record that the song was added to a queue
+     * 
+     * A saved song is incremented in the database, so concurrent enqueues do not
+     * overwrite each other's counts.
+     */
+    public void countEnqueue() {
+        countEnqueues(List.of(this));
+    }
+
+    /**
+     * Record that some songs were added to a queue
+     * 
+     * The saved songs are incremented in the database with a single statement,
+     * so adding many songs does not cost a statement for each.
+     * 
+     * @param songs The added songs
+     */
+    public static void countEnqueues(final Collection<? extends Song> songs) {
+        final List<UUID> saved = new ArrayList<>(songs.size());
+        for (final Song song : songs) {
+            song.enqueueCount++;
+            if (song.id != null) {
+                saved.add(song.id);
+            }
+        }
+        increment("enqueue_count", saved);
+    }
+
+    /**
+     * Record that the song started playing
+     * 
+     * A saved song is incremented in the database, so concurrent plays do not
+     * overwrite each other's counts.
+     */
+    public void countPlay() {
+        playCount++;
+        if (id != null) {
+            increment("play_count", List.of(id));
+        }
+    }
+
+    /**
+     * Atomically increment a counter of some saved songs.
+     * 
+     * A song that was never saved carries the count in its insert.
+     * 
+     * @param column The counter column
+     * @param ids    The ids of the saved songs
+     */
+    private static void increment(final String column, final Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        final MutationQuery update = getSession()
+                .createNativeMutationQuery("UPDATE song SET %1$s = %1$s + 1 WHERE id IN (:ids)".formatted(column));
+        // Only the songs are touched: flush just their pending writes, and keep
+        // the other cache regions
+        update.setHint(HibernateHints.HINT_NATIVE_SPACES, Song.class);
+        update.setParameterList("ids", ids).executeUpdate();
+    }
+
+    /**
+     * A song matching a catalog search
+     * 
+     * @param id        The id of the song
+     * @param relevance How well the name matches the query, from 0 to 1
+     * @param score     The rank of the song, combining relevance and popularity
+     */
+    public record CatalogMatch(UUID id, double relevance, double score) {
+    }
+
+    /**
+     * Search the known songs by name.
+     * 
+     * Songs match if they contain all the words of the query, or a part of the
+     * name is similar to it. They are ranked by relevance, boosted by how many
+     * times they were enqueued and played.
+     * 
+     * @param query      The searched query
+     * @param playWeight How much a play counts compared to an enqueue
+     * @param limit      The maximum number of matches
+     * @return The matches, best first
+     */
+    public static List<CatalogMatch> searchCatalog(final @NonNull String query, final double playWeight,
+            final int limit) {
+        final List<Object[]> rows = getSession().createNativeQuery("""
+                SELECT s.id,
+                    CAST(word_similarity(:query, s.name) AS DOUBLE PRECISION) AS relevance,
+                    CAST(
+                        (word_similarity(:query, s.name) + ts_rank(s.name_search, q.ts, 32))
+                        * (1 + ln(1 + s.enqueue_count + :playWeight * s.play_count))
+                    AS DOUBLE PRECISION) AS score
+                FROM song s,
+                    websearch_to_tsquery('simple', :query) AS q(ts)
+                WHERE s.name_search @@ q.ts OR :query <% s.name
+                ORDER BY score DESC
+                LIMIT :limit""", Object[].class)
+                .setParameter("query", query)
+                .setParameter("playWeight", playWeight)
+                .setParameter("limit", limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new CatalogMatch((UUID) row[0], ((Number) row[1]).doubleValue(),
+                        ((Number) row[2]).doubleValue()))
+                .toList();
+    }
+
     /**
      * Check if two songs are the same song
      * 
@@ -1,8 +1,10 @@
 package io.github.zannabianca1997.apelle.queues.resources;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
@@ -22,6 +24,9 @@ import jakarta.enterprise.context.RequestScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.transaction.TransactionScoped;
 import jakarta.transaction.Transactional;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
@@ -31,13 +36,18 @@ import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import io.github.zannabianca1997.apelle.queues.dtos.BulkEnqueueItemQueryDto;
+import io.github.zannabianca1997.apelle.queues.dtos.PlaylistImportQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.QueueQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.QueuedSongShortQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.SongAddDto;
+import io.github.zannabianca1997.apelle.queues.dtos.events.EventTimingsDto;
 import io.github.zannabianca1997.apelle.queues.dtos.events.QueueEventDto;
 import io.github.zannabianca1997.apelle.queues.dtos.events.QueueStateEventDto;
 import io.github.zannabianca1997.apelle.queues.exceptions.ActionNotPermittedException;
 import io.github.zannabianca1997.apelle.queues.exceptions.CantPlayEmptyQueueException;
+import io.github.zannabianca1997.apelle.queues.exceptions.InvalidEventTimingsException;
+import io.github.zannabianca1997.apelle.queues.exceptions.QueueNotFoundException;
 import io.github.zannabianca1997.apelle.queues.exceptions.SongAlreadyQueuedException;
 import io.github.zannabianca1997.apelle.queues.exceptions.SongNotQueuedException;
 import io.github.zannabianca1997.apelle.queues.mappers.EventMapper;
@@ -47,13 +57,17 @@ import io.github.zannabianca1997.apelle.queues.models.Queue;
 import io.github.zannabianca1997.apelle.queues.models.QueueUser;
 import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
 import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.services.QueueImportService;
 import io.github.zannabianca1997.apelle.queues.services.QueueService;
 import io.github.zannabianca1997.apelle.queues.services.QueueUserService;
 import io.github.zannabianca1997.apelle.queues.services.SongService;
+import io.github.zannabianca1997.apelle.queues.utils.EventLagRecorder;
 import io.github.zannabianca1997.apelle.queues.services.QueueService.EnqueueResult;
 import io.github.zannabianca1997.apelle.users.exceptions.UserNotFoundByIdException;
 import io.github.zannabianca1997.apelle.users.exceptions.UserNotFoundByNameException;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistImportDto;
 import io.github.zannabianca1997.apelle.youtube.exceptions.BadYoutubeApiResponseException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubePlaylistNotFoundException;
 import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeVideoNotFoundException;
 
 @Authenticated
@@ -66,10 +80,13 @@ public class QueueResource {
     private final QueueService queueService;
     private final SongService songService;
     private final QueueUserService queueUserService;
+    private final QueueImportService queueImportService;
 
     private final QueueSongResource queueSongResource;
     private final QueueUserResource queueUserResource;
 
+    private final EventLagRecorder eventLagRecorder;
+
     public QueueResource(
             final QueueMapper queueMapper,
             final SongMapper songMapper,
@@ -77,16 +94,20 @@ public class QueueResource {
             final QueueService queueService,
             final SongService songService,
             final QueueUserService queueUserService,
+            final QueueImportService queueImportService,
             final QueueSongResource queueSongResource,
-            final QueueUserResource queueUserResource) {
+            final QueueUserResource queueUserResource,
+            final EventLagRecorder eventLagRecorder) {
         this.queueMapper = queueMapper;
         this.songMapper = songMapper;
         this.eventMapper = eventMapper;
         this.queueService = queueService;
         this.songService = songService;
         this.queueUserService = queueUserService;
+        this.queueImportService = queueImportService;
         this.queueSongResource = queueSongResource;
         this.queueUserResource = queueUserResource;
+        this.eventLagRecorder = eventLagRecorder;
     }
 
     private Queue queue = null;
@@ -112,7 +133,8 @@ public class QueueResource {
             @Content(mediaType = "application/json", schema = @Schema(implementation = QueueQueryDto.class))
     })
     public QueueQueryDto get() {
-        return queueMapper.toDto(queue, queuedSong -> queueUserService.likes(current, queuedSong));
+        // The songs are read as projections, so long queues do not fill the session
+        return queueMapper.toDto(queue, queueService.getQueuedSongsView(queue, current));
     }
 
     @POST
@@ -132,6 +154,48 @@ public class QueueResource {
         return songMapper.toShortDto(enqueued.queuedSong(), enqueued.autolikes());
     }
 
+    @POST
+    @Path("/queue/bulk")
+    @Operation(summary = "Add many songs to the queue", description = """
+            Add many songs to the queue in a single operation.
+            Songs already in the queue are skipped. The outcome is reported for each song, in the same order.""")
+    @APIResponse(responseCode = "200", description = "The outcome for each song", content = {
+            @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY,
+                    implementation = BulkEnqueueItemQueryDto.class))
+    })
+    @Transactional
+    @Tag(name = "Queued song")
+    public List<BulkEnqueueItemQueryDto> enqueueAll(
+            @NotNull @Size(max = 200) final List<@NotNull SongAddDto> songAddDtos,
+            @RestQuery("autolike") final Boolean autolike)
+            throws BadYoutubeApiResponseException, ActionNotPermittedException {
+        final List<Song> songs = songService.fromDtos(songAddDtos);
+        return queueService.enqueueAll(queue, songs, autolike).stream().map(songMapper::toDto).toList();
+    }
+
+    @POST
+    @Path("/queue/playlist")
+    @Operation(summary = "Add a playlist to the queue", description = """
+            Add all the songs of a youtube playlist to the queue.
+            Songs are added a page at a time, and each page is announced to the queue listeners as it is added.
+            Songs already in the queue are skipped.""")
+    @APIResponse(responseCode = "200", description = "Summary of the import", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = PlaylistImportQueryDto.class))
+    })
+    @Tag(name = "Queued song")
+    public PlaylistImportQueryDto importPlaylist(@NotNull @Valid final YoutubePlaylistImportDto playlistImportDto,
+            @RestQuery("autolike") final Boolean autolike)
+            throws YoutubePlaylistNotFoundException, BadYoutubeApiResponseException, ActionNotPermittedException,
+            QueueNotFoundException {
+        // Not transactional: each page is added in its own transaction, that loads
+        // the queue again. The instances loaded by the locator must not be merged
+        // in them, as they get stale while the import runs
+        final UUID queueId = queue.getId();
+        queue = null;
+        current = null;
+        return queueImportService.importYoutubePlaylist(queueId, playlistImportDto.getPlaylistId(), autolike);
+    }
+
     @Path("/queue/{songId}")
     public QueueSongResource queueSong(final UUID songId) throws SongNotQueuedException {
         final QueuedSong song = queueService.getQueuedSong(queue, songId);
@@ -228,6 +292,17 @@ public class QueueResource {
     @Blocking
     public Multi<QueueEventDto> events() {
         return Multi.createFrom().<QueueEventDto>item(QueueStateEventDto.builder().queue(get()).build())
-                .onCompletion().switchTo(queueService.events(queue, current).map(eventMapper::toDto));
+                .onCompletion().switchTo(queueService.events(queue, current)
+                        .map(event -> eventMapper.toDto(eventLagRecorder.sent(event))));
+    }
+
+    @POST
+    @Path("/events/ack")
+    @Operation(summary = "Acknowledge an event", description = """
+            Signal that an event was received, sending back its timings.
+            Optional, it is only used to measure the time the events take to reach the clients.""")
+    @APIResponse(responseCode = "204", description = "The acknowledgement was recorded")
+    public void acknowledge(@NotNull @Valid final EventTimingsDto timings) throws InvalidEventTimingsException {
+        eventLagRecorder.acknowledged(timings);
     }
 }
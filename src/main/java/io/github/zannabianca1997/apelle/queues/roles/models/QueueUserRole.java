@@ -2,7 +2,11 @@ package io.github.zannabianca1997.apelle.queues.roles.models;
 
 import java.util.UUID;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
@@ -20,6 +24,9 @@ import lombok.ToString;
 
 /**
  * Role that a user has in a queue
+ * 
+ * Roles are created by the migrations and never changed, so they are cached as
+ * read only, sparing a query on each permission check.
  */
 @Getter
 @Setter
@@ -28,6 +35,8 @@ import lombok.ToString;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Entity
 @Table(name = "queue_user_role")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class QueueUserRole extends PanacheEntityBase {
 
     @Id
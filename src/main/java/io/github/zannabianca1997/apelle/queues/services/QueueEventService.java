@@ -1,75 +1,96 @@
 package io.github.zannabianca1997.apelle.queues.services;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import io.github.zannabianca1997.apelle.queues.dtos.QueuedSongShortQueryDto;
 import io.github.zannabianca1997.apelle.queues.events.QueueEnqueueEvent;
 import io.github.zannabianca1997.apelle.queues.events.QueueEvent;
 import io.github.zannabianca1997.apelle.queues.events.QueueLikeEvent;
 import io.github.zannabianca1997.apelle.queues.events.QueueNextEvent;
 import io.github.zannabianca1997.apelle.queues.events.QueueStartEvent;
 import io.github.zannabianca1997.apelle.queues.exceptions.InvalidEvent;
-import io.github.zannabianca1997.apelle.queues.exceptions.QueueNotFoundException;
-import io.github.zannabianca1997.apelle.queues.exceptions.SongNotQueuedException;
+import io.github.zannabianca1997.apelle.queues.jfr.QueueEventPersonalizationEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.enterprise.context.ApplicationScoped;
 
 @ApplicationScoped
 public class QueueEventService {
     private final QueueUserService queueUserService;
+    private final MeterRegistry meterRegistry;
 
-    public QueueEventService(final QueueUserService queueUserService) {
+    public QueueEventService(final QueueUserService queueUserService, final MeterRegistry meterRegistry) {
         this.queueUserService = queueUserService;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
      * Fill an event with user specific data, like likes given, etc
      */
     public QueueEvent asSeenBy(final QueueEvent event, final UUID userId) throws InvalidEvent {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final QueueEventPersonalizationEvent recorded = new QueueEventPersonalizationEvent();
+        recorded.begin();
         try {
-            return switch (event) {
-                case final QueueEnqueueEvent queueEnqueueEvent -> fillUserLikes(queueEnqueueEvent, userId);
-                case final QueueLikeEvent queueLikeEvent -> fillUserLikes(queueLikeEvent, userId);
-                case final QueueNextEvent queueNextEvent -> fillUserLikes(queueNextEvent, userId);
-                case final QueueStartEvent queueStartEvent -> fillUserLikes(queueStartEvent, userId);
-                default -> event;
-            };
-        } catch (SongNotQueuedException | QueueNotFoundException e) {
-            throw new InvalidEvent("An event was in a invalid state", e);
+            return personalize(event, userId);
+        } finally {
+            recorded.end();
+            if (recorded.shouldCommit()) {
+                recorded.queueId = event.getQueueId().toString();
+                recorded.type = event.getClass().getSimpleName();
+                recorded.userId = userId.toString();
+                recorded.commit();
+            }
+            sample.stop(Timer.builder("apelle.queues.events.personalization")
+                    .description("Time spent filling the events with the data of each listener")
+                    .tag("type", event.getClass().getSimpleName())
+                    .register(meterRegistry));
         }
     }
 
-    private QueueEnqueueEvent fillUserLikes(final QueueEnqueueEvent queueEnqueueEvent, final UUID userId)
-            throws SongNotQueuedException, QueueNotFoundException {
-        for (final var queuedSongShortQueryDto : queueEnqueueEvent.getQueuedSongs()) {
-            queuedSongShortQueryDto.setUserLikes(
-                    queueUserService.likes(userId, queueEnqueueEvent.getQueueId(), queuedSongShortQueryDto.getId()));
+    private QueueEvent personalize(final QueueEvent event, final UUID userId) throws InvalidEvent {
+        return switch (event) {
+            case final QueueEnqueueEvent queueEnqueueEvent -> fillUserLikes(queueEnqueueEvent, userId);
+            case final QueueLikeEvent queueLikeEvent -> fillUserLikes(queueLikeEvent, userId);
+            case final QueueNextEvent queueNextEvent -> fillUserLikes(queueNextEvent, userId);
+            case final QueueStartEvent queueStartEvent -> fillUserLikes(queueStartEvent, userId);
+            default -> event;
+        };
+    }
+
+    /**
+     * Fill the likes given by the user, reading all of them in a single query
+     */
+    private void fillUserLikes(final List<QueuedSongShortQueryDto> queuedSongs, final UUID queueId,
+            final UUID userId) {
+        if (queuedSongs.isEmpty()) {
+            return;
+        }
+        final Map<UUID, Short> userLikes = queueUserService.likesBySong(userId, queueId);
+        for (final var queuedSongShortQueryDto : queuedSongs) {
+            queuedSongShortQueryDto.setUserLikes(userLikes.getOrDefault(queuedSongShortQueryDto.getId(), (short) 0));
         }
+    }
+
+    private QueueEnqueueEvent fillUserLikes(final QueueEnqueueEvent queueEnqueueEvent, final UUID userId) {
+        fillUserLikes(queueEnqueueEvent.getQueuedSongs(), queueEnqueueEvent.getQueueId(), userId);
         return queueEnqueueEvent;
     }
 
-    private QueueLikeEvent fillUserLikes(final QueueLikeEvent queueLikeEvent, final UUID userId)
-            throws SongNotQueuedException, QueueNotFoundException {
-        for (final var queuedSongShortQueryDto : queueLikeEvent.getQueuedSongs()) {
-            queuedSongShortQueryDto.setUserLikes(
-                    queueUserService.likes(userId, queueLikeEvent.getQueueId(), queuedSongShortQueryDto.getId()));
-        }
+    private QueueLikeEvent fillUserLikes(final QueueLikeEvent queueLikeEvent, final UUID userId) {
+        fillUserLikes(queueLikeEvent.getQueuedSongs(), queueLikeEvent.getQueueId(), userId);
         return queueLikeEvent;
     }
 
-    private QueueNextEvent fillUserLikes(final QueueNextEvent queueNextEvent, final UUID userId)
-            throws SongNotQueuedException, QueueNotFoundException {
-        for (final var queuedSongShortQueryDto : queueNextEvent.getState().getQueuedSongs()) {
-            queuedSongShortQueryDto.setUserLikes(
-                    queueUserService.likes(userId, queueNextEvent.getQueueId(), queuedSongShortQueryDto.getId()));
-        }
+    private QueueNextEvent fillUserLikes(final QueueNextEvent queueNextEvent, final UUID userId) {
+        fillUserLikes(queueNextEvent.getState().getQueuedSongs(), queueNextEvent.getQueueId(), userId);
         return queueNextEvent;
     }
 
-    private QueueStartEvent fillUserLikes(final QueueStartEvent queueStartEvent, final UUID userId)
-            throws SongNotQueuedException, QueueNotFoundException {
-        for (final var queuedSongShortQueryDto : queueStartEvent.getState().getQueuedSongs()) {
-            queuedSongShortQueryDto.setUserLikes(
-                    queueUserService.likes(userId, queueStartEvent.getQueueId(), queuedSongShortQueryDto.getId()));
-        }
+    private QueueStartEvent fillUserLikes(final QueueStartEvent queueStartEvent, final UUID userId) {
+        fillUserLikes(queueStartEvent.getState().getQueuedSongs(), queueStartEvent.getQueueId(), userId);
         return queueStartEvent;
     }
 
@@ -0,0 +1,188 @@
+package io.github.zannabianca1997.apelle.queues.services;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.queues.dtos.PlaylistImportQueryDto;
+import io.github.zannabianca1997.apelle.queues.exceptions.ActionNotPermittedException;
+import io.github.zannabianca1997.apelle.queues.exceptions.QueueNotFoundException;
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.github.zannabianca1997.apelle.queues.models.QueueUser;
+import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.services.QueueService.BulkEnqueueResult;
+import io.github.zannabianca1997.apelle.youtube.configs.PlaylistsConfig;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
+import io.github.zannabianca1997.apelle.youtube.exceptions.BadYoutubeApiResponseException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubePlaylistNotFoundException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeQuotaExceededException;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeService;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeService.PlaylistPage;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.QuarkusTransactionException;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Import songs from external playlists.
+ *
+ * Playlists are read a page at a time. Each page is added to the queue in its
+ * own transaction, so the songs appear in the queue while the import proceeds
+ * and no transaction has to hold the whole playlist. The enqueue event of each
+ * page tells the listeners how the import proceeds. The next page is fetched
+ * while the current one is being added, without holding another thread.
+ */
+@ApplicationScoped
+public class QueueImportService {
+    private final QueueService queueService;
+    private final QueueUserService queueUserService;
+    private final SongService songService;
+    private final YoutubeService youtubeService;
+    private final PlaylistsConfig playlistsConfig;
+    private final Logger log;
+
+    public QueueImportService(final QueueService queueService, final QueueUserService queueUserService,
+            final SongService songService, final YoutubeService youtubeService, final PlaylistsConfig playlistsConfig,
+            final Logger log) {
+        this.queueService = queueService;
+        this.queueUserService = queueUserService;
+        this.songService = songService;
+        this.youtubeService = youtubeService;
+        this.playlistsConfig = playlistsConfig;
+        this.log = log;
+    }
+
+    /**
+     * Add all the songs of a youtube playlist to a queue
+     * 
+     * Must be called outside of a transaction.
+     * 
+     * @param queueId          The id of the queue
+     * @param playlistId       The id of the playlist
+     * @param autolikeOverride Override the autolike setting of the queue
+     * @return How many songs were added
+     * @throws YoutubePlaylistNotFoundException The playlist does not exist
+     * @throws BadYoutubeApiResponseException   An error happened while talking to
+     *                                          youtube
+     * @throws ActionNotPermittedException      The user cannot enqueue songs
+     * @throws QueueNotFoundException           The queue was deleted during the
+     *                                          import
+     */
+    public PlaylistImportQueryDto importYoutubePlaylist(final UUID queueId, final String playlistId,
+            final Boolean autolikeOverride) throws YoutubePlaylistNotFoundException, BadYoutubeApiResponseException,
+            ActionNotPermittedException, QueueNotFoundException {
+        int added = 0, duplicate = 0, notFound = 0, read = 0;
+        boolean truncated = false;
+
+        // No quota is spent on the playlist if the user cannot add it
+        checkCanEnqueue(queueId);
+
+        // The first page is fetched here, so a missing playlist is reported directly
+        PlaylistPage page = youtubeService.getPlaylistPage(playlistId, null);
+        while (page != null) {
+            List<YoutubeSongAddDto> songs = page.songs();
+            if (read + songs.size() > playlistsConfig.maxItems()) {
+                songs = songs.subList(0, playlistsConfig.maxItems() - read);
+                truncated = true;
+            }
+            read += songs.size();
+
+            // Start fetching the next page while this one is added
+            final CompletableFuture<PlaylistPage> next = page.nextPageToken() != null && !truncated
+                    ? youtubeService.fetchPlaylistPage(playlistId, page.nextPageToken()).subscribeAsCompletionStage()
+                    : null;
+
+            for (final BulkEnqueueResult result : enqueuePage(queueId, songs, autolikeOverride)) {
+                switch (result.status()) {
+                    case Added -> added++;
+                    case Duplicate -> duplicate++;
+                    case NotFound -> notFound++;
+                }
+            }
+
+            page = next != null ? awaitPage(playlistId, next) : null;
+        }
+
+        log.infof("[queue=%s] Imported playlist %s: %d added, %d duplicates, %d not found", queueId, playlistId,
+                added, duplicate, notFound);
+
+        return PlaylistImportQueryDto.builder()
+                .added(added)
+                .duplicate(duplicate)
+                .notFound(notFound)
+                .truncated(truncated)
+                .build();
+    }
+
+    private void checkCanEnqueue(final UUID queueId)
+            throws BadYoutubeApiResponseException, ActionNotPermittedException, QueueNotFoundException {
+        inTransaction(() -> {
+            final QueueUser user = queueUserService.getCurrent(queueService.get(queueId));
+            if (!user.getPermissions().getQueue().isEnqueue()) {
+                throw new ActionNotPermittedException(user.getRole(), "enqueue song");
+            }
+            return null;
+        });
+    }
+
+    private List<BulkEnqueueResult> enqueuePage(final UUID queueId, final List<YoutubeSongAddDto> songAddDtos,
+            final Boolean autolikeOverride)
+            throws BadYoutubeApiResponseException, ActionNotPermittedException, QueueNotFoundException {
+        return inTransaction(() -> {
+            final Queue queue = queueService.get(queueId);
+            final List<Song> songs = songService.fromDtos(List.copyOf(songAddDtos));
+            return queueService.enqueueAll(queue, songs, autolikeOverride);
+        });
+    }
+
+    /**
+     * Run some work in a new transaction, unwrapping the expected exceptions
+     */
+    private <T> T inTransaction(final Callable<T> work)
+            throws BadYoutubeApiResponseException, ActionNotPermittedException, QueueNotFoundException {
+        try {
+            return QuarkusTransaction.requiringNew().call(work);
+        } catch (final QuarkusTransactionException e) {
+            switch (e.getCause()) {
+                case final BadYoutubeApiResponseException badResponse:
+                    throw badResponse;
+                case final ActionNotPermittedException notPermitted:
+                    throw notPermitted;
+                case final QueueNotFoundException queueNotFound:
+                    throw queueNotFound;
+                default:
+                    throw e;
+            }
+        }
+    }
+
+    private PlaylistPage awaitPage(final String playlistId, final CompletableFuture<PlaylistPage> page)
+            throws YoutubePlaylistNotFoundException, BadYoutubeApiResponseException {
+        try {
+            return page.get(playlistsConfig.pageTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            page.cancel(false);
+            throw new BadYoutubeApiResponseException("Timed out while fetching playlist " + playlistId, e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BadYoutubeApiResponseException("Interrupted while fetching playlist " + playlistId, e);
+        } catch (final ExecutionException e) {
+            switch (e.getCause()) {
+                case final YoutubePlaylistNotFoundException notFound:
+                    // Deleted during the import
+                    throw new YoutubePlaylistNotFoundException(notFound.getPlaylistId());
+                case final YoutubeQuotaExceededException quotaExceeded:
+                    throw new YoutubeQuotaExceededException(quotaExceeded.getMessage(), quotaExceeded);
+                case final RuntimeException runtime:
+                    throw runtime;
+                default:
+                    throw new BadYoutubeApiResponseException("Failed to fetch playlist " + playlistId, e.getCause());
+            }
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package io.github.zannabianca1997.apelle.queues.services;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import org.jboss.logging.Logger;
 
-import io.github.zannabianca1997.apelle.queues.configs.QueueCodeConfigs;
+import io.github.zannabianca1997.apelle.queues.dtos.BulkEnqueueStatus;
 import io.github.zannabianca1997.apelle.queues.events.QueueDeleteEvent;
 import io.github.zannabianca1997.apelle.queues.events.QueueEnqueueEvent;
 import io.github.zannabianca1997.apelle.queues.events.QueueEvent;
@@ -19,6 +27,7 @@ import io.github.zannabianca1997.apelle.queues.exceptions.CantPlayEmptyQueueExce
 import io.github.zannabianca1997.apelle.queues.exceptions.QueueNotFoundException;
 import io.github.zannabianca1997.apelle.queues.exceptions.SongAlreadyQueuedException;
 import io.github.zannabianca1997.apelle.queues.exceptions.SongNotQueuedException;
+import io.github.zannabianca1997.apelle.queues.jfr.RecordedOperation;
 import io.github.zannabianca1997.apelle.queues.mappers.QueueMapper;
 import io.github.zannabianca1997.apelle.queues.mappers.SongMapper;
 import io.github.zannabianca1997.apelle.queues.models.Likes;
@@ -27,15 +36,38 @@ import io.github.zannabianca1997.apelle.queues.models.QueueConfig;
 import io.github.zannabianca1997.apelle.queues.models.QueueUser;
 import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
 import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.utils.EventLagRecorder;
+import io.github.zannabianca1997.apelle.queues.utils.QueueCodeAllocator;
 import io.github.zannabianca1997.apelle.queues.utils.QueueEventBus;
-import io.github.zannabianca1997.apelle.queues.utils.StringUtils;
 import io.github.zannabianca1997.apelle.users.services.UsersService;
+import io.micrometer.core.annotation.Timed;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 
 @ApplicationScoped
 public class QueueService {
+    /**
+     * Time spent in the queue operations, before the commit. The thrown exception
+     * is added as a tag.
+     */
+    private static final String OPERATIONS_TIMER = "apelle.queues.operations";
+
+    private static final AttributeKey<String> QUEUE_ID_ATTRIBUTE = AttributeKey.stringKey("apelle.queue.id");
+    private static final AttributeKey<String> USER_ID_ATTRIBUTE = AttributeKey.stringKey("apelle.user.id");
+
+    /**
+     * Mark the current span with the queue and the user doing the operation
+     */
+    private static void traceOperation(final Queue queue, final QueueUser user) {
+        Span.current()
+                .setAttribute(QUEUE_ID_ATTRIBUTE, queue.getId().toString())
+                .setAttribute(USER_ID_ATTRIBUTE, user.getUser().getId().toString());
+    }
+
     private final QueueMapper queueMapper;
     private final SongMapper songMapper;
 
@@ -43,26 +75,25 @@ public class QueueService {
     private final QueueUserService queueUserService;
     private final QueueEventService queueEventService;
 
-    private final QueueCodeConfigs queueCodeConfigs;
-
     private final QueueEventBus queueEventBus;
 
-    private final StringUtils stringUtils;
+    private final QueueCodeAllocator queueCodeAllocator;
+    private final EventLagRecorder eventLagRecorder;
 
     private final Logger log;
 
     public QueueService(final QueueMapper queueMapper, final SongMapper songMapper, final UsersService usersService,
             final QueueUserService queueUserService, final QueueEventService queueEventService,
-            final QueueCodeConfigs queueCodeConfigs, final QueueEventBus queueEventBus, final StringUtils stringUtils,
-            final Logger log) {
+            final QueueEventBus queueEventBus, final QueueCodeAllocator queueCodeAllocator,
+            final EventLagRecorder eventLagRecorder, final Logger log) {
         this.queueMapper = queueMapper;
         this.songMapper = songMapper;
         this.usersService = usersService;
         this.queueUserService = queueUserService;
         this.queueEventService = queueEventService;
-        this.queueCodeConfigs = queueCodeConfigs;
         this.queueEventBus = queueEventBus;
-        this.stringUtils = stringUtils;
+        this.queueCodeAllocator = queueCodeAllocator;
+        this.eventLagRecorder = eventLagRecorder;
         this.log = log;
     }
 
@@ -72,19 +103,8 @@ public class QueueService {
      * @return The created queue
      */
     public Queue create() {
-
-        /*
-         * Evaluate needed code complexity.
-         * 
-         * A minimal lenght is required, then an estimate of how many bytes are needed
-         * to avoid collisions is made. If all queue codes are assigned this will bring
-         * to a logaritmical growth of the code lenght, keeping it under control.
-         */
-        var codeComplexity = Integer.max(queueCodeConfigs.complexity().min(),
-                queueCodeConfigs.complexity().margin() + (int) (Math.log1p(Queue.count()) / Math.log(256)));
-
         final var queue = Queue.builder()
-                .code(generateQueueCode(codeComplexity))
+                .code(queueCodeAllocator.next())
                 .config(QueueConfig.findDefault())
                 .build();
         final var creator = usersService.getMe();
@@ -95,18 +115,6 @@ public class QueueService {
                 .likesFilled(false)
                 .build());
 
-        /*
-         * Try to insert the queue.
-         * 
-         * In case of a code collision, generate a new code with an increase complexity
-         * and try again until it succeed. As each try has about 1/256 more possibility
-         * to suceed, this should very rarely exceed two tries.
-         */
-        while (Queue.existByCode(queue.getCode())) {
-            codeComplexity += 1;
-            queue.setCode(generateQueueCode(codeComplexity));
-        }
-
         queue.persist();
 
         log.infof("[user=%s, queue=%s] Created queue", creator.getId(), queue.getId());
@@ -114,10 +122,6 @@ public class QueueService {
         return queue;
     }
 
-    private String generateQueueCode(final int codeComplexity) {
-        return stringUtils.random(codeComplexity, queueCodeConfigs.alphabet());
-    }
-
     /**
      * Obtain a queue
      * 
@@ -148,6 +152,17 @@ public class QueueService {
         return queue;
     }
 
+    /**
+     * Read the songs in a queue as seen by a user, without loading the entities
+     * 
+     * @param queue The queue
+     * @param user  The user
+     * @return The songs, in queue order
+     */
+    public List<QueuedSong.ShortView> getQueuedSongsView(final Queue queue, final QueueUser user) {
+        return QueuedSong.findShortViews(queue.getId(), user.getUser().getId());
+    }
+
     /**
      * Start playing a queue
      * 
@@ -156,6 +171,9 @@ public class QueueService {
      * @throws CantPlayEmptyQueueException The queue is empty
      * @throws ActionNotPermittedException
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "start" })
+    @RecordedOperation("start")
+    @WithSpan
     public void start(final Queue queue) throws CantPlayEmptyQueueException, ActionNotPermittedException {
         final QueueUser user = queueUserService.getCurrent(queue);
         if (!user.getPermissions().getQueue().isStart()) {
@@ -163,6 +181,7 @@ public class QueueService {
         }
 
         log.infof("[user=%s, queue=%s] Start playing requested", user.getUser().getId(), queue.getId());
+        traceOperation(queue, user);
 
         final boolean startedNow = queue.start();
         if (startedNow) {
@@ -179,6 +198,9 @@ public class QueueService {
      * @throws ActionNotPermittedException
      * @throws QueueNotFoundException      The queue does not exist
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "stop" })
+    @RecordedOperation("stop")
+    @WithSpan
     public void stop(final Queue queue) throws ActionNotPermittedException {
         final QueueUser user = queueUserService.getCurrent(queue);
         if (!user.getPermissions().getQueue().isStop()) {
@@ -186,6 +208,7 @@ public class QueueService {
         }
 
         log.infof("[user=%s, queue=%s] Stop playing requested", user.getUser().getId(), queue.getId());
+        traceOperation(queue, user);
 
         final boolean stoppedNow = queue.stop();
         if (stoppedNow) {
@@ -204,6 +227,9 @@ public class QueueService {
      * @throws CantPlayEmptyQueueException The queue is empty
      * @throws ActionNotPermittedException
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "next" })
+    @RecordedOperation("next")
+    @WithSpan
     public void next(final Queue queue) throws CantPlayEmptyQueueException, ActionNotPermittedException {
         final QueueUser user = queueUserService.getCurrent(queue);
         if (!user.getPermissions().getQueue().isNext()) {
@@ -211,6 +237,7 @@ public class QueueService {
         }
 
         log.infof("[user=%s, queue=%s] Next song requested", user.getUser().getId(), queue.getId());
+        traceOperation(queue, user);
 
         queue.next();
         queueEventBus.publish(QueueNextEvent.builder().queueId(queue.getId())
@@ -223,6 +250,9 @@ public class QueueService {
      * @param song The song to skip to
      * @throws ActionNotPermittedException The user can't skip songs
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "next" })
+    @RecordedOperation("next")
+    @WithSpan
     public void next(final QueuedSong song) throws ActionNotPermittedException {
         final Queue queue = song.getQueue();
 
@@ -233,6 +263,7 @@ public class QueueService {
 
         log.infof("[user=%s, queue=%s] Song %s requested", user.getUser().getId(), queue.getId(),
                 song.getSong().getId());
+        traceOperation(queue, user);
 
         queue.next(song);
         queueEventBus.publish(QueueNextEvent.builder().queueId(queue.getId())
@@ -251,16 +282,21 @@ public class QueueService {
      * @throws SongAlreadyQueuedException  The song is already in the queue
      * @throws ActionNotPermittedException
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "enqueue" })
+    @RecordedOperation("enqueue")
+    @WithSpan
     public EnqueueResult enqueue(final Queue queue, final Song song, final Boolean autolikeOverride)
             throws SongAlreadyQueuedException, ActionNotPermittedException {
         final QueueUser user = queueUserService.getCurrent(queue);
         if (!user.getPermissions().getQueue().isEnqueue()) {
             throw new ActionNotPermittedException(user.getRole(), "enqueue song");
         }
+        traceOperation(queue, user);
 
         if (queue.getAllSongs().anyMatch(queued -> queued.isSame(song))) {
             throw new SongAlreadyQueuedException(queue.getId(), song);
         }
+        song.countEnqueue();
         song.persist();
 
         log.infof("[user=%s, queue=%s] Song added: %s", user.getUser().getId(), queue.getId(), song.getId());
@@ -291,6 +327,106 @@ public class QueueService {
         return new EnqueueResult(enqueued, likesGiven);
     }
 
+    public record BulkEnqueueResult(BulkEnqueueStatus status, EnqueueResult enqueued) {
+    }
+
+    /**
+     * Add many songs to the queue at once
+     * 
+     * Songs already in the queue, or repeated in the list, are skipped. Songs are
+     * added in the given order, and autolikes are given while the user has likes
+     * available. A single event is published for the whole operation.
+     * 
+     * @param queue            The queue
+     * @param songs            The songs to add. Songs that could not be found
+     *                         are {@code null}
+     * @param autolikeOverride Override the autolike setting of the queue
+     * @return The outcome for each song, in the same order
+     * @throws ActionNotPermittedException
+     */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "enqueue-bulk" })
+    @RecordedOperation("enqueue-bulk")
+    @WithSpan
+    public List<BulkEnqueueResult> enqueueAll(final Queue queue, final List<Song> songs,
+            final Boolean autolikeOverride) throws ActionNotPermittedException {
+        final QueueUser user = queueUserService.getCurrent(queue);
+        if (!user.getPermissions().getQueue().isEnqueue()) {
+            throw new ActionNotPermittedException(user.getRole(), "enqueue song");
+        }
+        traceOperation(queue, user);
+
+        // Check all the known songs against the queue with a single query
+        final Set<UUID> alreadyQueued = QueuedSong.findQueuedSongIds(songs.stream()
+                .filter(Objects::nonNull).map(Song::getId).filter(Objects::nonNull).toList(), queue);
+        if (queue.getCurrent() != null) {
+            alreadyQueued.add(queue.getCurrent().getSong().getId());
+        }
+        // Songs not yet saved are never in the queue, but can be repeated in the list
+        final Set<Song> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        final boolean autolike = autolikeOverride != null ? autolikeOverride : queue.getConfig().isAutolike();
+        int availableLikes = autolike ? user.getAvailableLikes() : 0;
+
+        // Give each song its own instant, so they keep the order of the request
+        final Instant now = Instant.now();
+        int added = 0;
+
+        // Songs already saved are counted all together, after the loop
+        final List<Song> known = new ArrayList<>();
+
+        final List<BulkEnqueueResult> results = new ArrayList<>(songs.size());
+        for (final Song song : songs) {
+            if (song == null) {
+                results.add(new BulkEnqueueResult(BulkEnqueueStatus.NotFound, null));
+                continue;
+            }
+            if (!seen.add(song) || (song.getId() != null && alreadyQueued.contains(song.getId()))) {
+                results.add(new BulkEnqueueResult(BulkEnqueueStatus.Duplicate, null));
+                continue;
+            }
+
+            if (song.getId() != null) {
+                known.add(song);
+            } else {
+                song.countEnqueue();
+                song.persist();
+            }
+            final QueuedSong enqueued = queue.enqueue(song, now.plus(added, ChronoUnit.MICROS));
+            added++;
+
+            final short likesGiven;
+            if (availableLikes > 0) {
+                Likes.builder().user(user.getUser()).song(enqueued).givenAt(now).count((short) 1).build()
+                        .persist();
+                enqueued.setLikes((short) 1);
+                availableLikes--;
+                likesGiven = (short) 1;
+            } else {
+                likesGiven = (short) 0;
+            }
+
+            results.add(new BulkEnqueueResult(BulkEnqueueStatus.Added, new EnqueueResult(enqueued, likesGiven)));
+        }
+
+        if (added == 0) {
+            return results;
+        }
+        Song.countEnqueues(known);
+
+        log.infof("[user=%s, queue=%s] %d songs added", user.getUser().getId(), queue.getId(), added);
+
+        queue.sortSongs();
+        queueEventBus
+                .publish(
+                        QueueEnqueueEvent.builder().queueId(queue.getId())
+                                .queuedSongs(queue.getQueuedSongs().stream()
+                                        .map(s -> songMapper.toShortDto(s, (short) -1))
+                                        .toList())
+                                .build());
+
+        return results;
+    }
+
     /**
      * Add a like to a song
      * 
@@ -298,6 +434,9 @@ public class QueueService {
      * @param userId The user liking the song
      * @throws ActionNotPermittedException
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "like" })
+    @RecordedOperation("like")
+    @WithSpan
     public void like(final QueuedSong song, final QueueUser user) throws ActionNotPermittedException {
         like(song, user, (short) 1);
     }
@@ -310,6 +449,9 @@ public class QueueService {
      * @param count  The number of like to add
      * @throws ActionNotPermittedException
      */
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "like" })
+    @RecordedOperation("like")
+    @WithSpan
     public void like(final QueuedSong song, final QueueUser user, short count) throws ActionNotPermittedException {
         if (!user.getPermissions().getQueue().isLike()) {
             throw new ActionNotPermittedException(user.getRole(), "like song");
@@ -324,15 +466,20 @@ public class QueueService {
 
         log.infof("[user=%s, queue=%s] User adds %s likes to the song %s", user.getUser().getId(), queue.getId(), count,
                 song.getSong().getId());
+        traceOperation(queue, user);
 
         // Liming the number of likes to the max
         count = (short) Math.min(count, user.getMaxLikes());
 
         // Calculating how many likes must be removed
         int toRemove = Math.max(count - (user.getMaxLikes() - user.getLikes()), 0);
-        while (toRemove > 0) {
+        // Read all the likes at once, so the updates and deletes are not flushed
+        // by a query between them, and are sent in batches at the commit
+        final Iterator<Likes> byAge = toRemove > 0 ? Likes.findOldests(user).iterator()
+                : Collections.emptyIterator();
+        while (toRemove > 0 && byAge.hasNext()) {
             // Find the oldest group of likes
-            final Likes oldests = Likes.findOldests(user);
+            final Likes oldests = byAge.next();
 
             // calculate how many to remove
             final var removing = Math.min(toRemove, oldests.getCount());
@@ -383,6 +530,9 @@ public class QueueService {
         return queuedSong;
     }
 
+    @Timed(value = OPERATIONS_TIMER, extraTags = { "operation", "remove" })
+    @RecordedOperation("remove")
+    @WithSpan
     public void removeQueuedSong(final QueuedSong song, final QueueUser user) throws ActionNotPermittedException {
         if (!user.getPermissions().getQueue().isRemove()) {
             throw new ActionNotPermittedException(user.getRole(), "remove song");
@@ -390,6 +540,7 @@ public class QueueService {
 
         log.infof("[user=%s, queue=%s] Removed song %s", user.getUser().getId(), user.getQueue().getId(),
                 song.getSong().getId());
+        traceOperation(song.getQueue(), user);
 
         Likes.deleteReferringTo(song);
         song.getQueue().getQueuedSongs().removeIf(s -> s.getSong().getId().equals(song.getSong().getId()));
@@ -400,6 +551,8 @@ public class QueueService {
                 .deletedId(song.getSong().getId()).build());
     }
 
+    @RecordedOperation("delete")
+    @WithSpan
     public void delete(final Queue queue) throws ActionNotPermittedException {
         final QueueUser user = queueUserService.getCurrent(queue);
         if (!user.getPermissions().isDelete()) {
@@ -407,6 +560,7 @@ public class QueueService {
         }
 
         log.infof("[user=%s, queue=%s] Queue deleted", user.getUser().getId(), queue.getId());
+        traceOperation(queue, user);
 
         queue.delete();
 
@@ -423,7 +577,7 @@ public class QueueService {
         return queueEventBus.events(queueId)
                 // The `asSeenBy` call need to contact the db, so it must run on the worker pool
                 .emitOn(Infrastructure.getDefaultWorkerPool())
-                .map(event -> queueEventService.asSeenBy(event, userId))
+                .map(event -> eventLagRecorder.personalized(queueEventService.asSeenBy(event, userId)))
                 .onSubscription()
                 .invoke(() -> log.infof("[user=%s, queue=%s] Connected to the server", userId, queueId))
                 .onItem()
@@ -1,5 +1,6 @@
 package io.github.zannabianca1997.apelle.queues.services;
 
+import java.util.Map;
 import java.util.UUID;
 
 import io.github.zannabianca1997.apelle.queues.exceptions.ActionNotPermittedException;
@@ -106,6 +107,27 @@ public class QueueUserService {
         return Likes.givenBy(userId, song);
     }
 
+    /**
+     * The likes given by a user to the songs of its queue
+     * 
+     * @param user The user
+     * @return The likes, by song id. Songs with no likes are missing
+     */
+    public Map<UUID, Short> likesBySong(final QueueUser user) {
+        return likesBySong(user.getUser().getId(), user.getQueue().getId());
+    }
+
+    /**
+     * The likes given by a user to the songs of a queue
+     * 
+     * @param userId  The id of the user
+     * @param queueId The id of the queue
+     * @return The likes, by song id. Songs with no likes are missing
+     */
+    public Map<UUID, Short> likesBySong(final UUID userId, final UUID queueId) {
+        return Likes.givenBy(userId, queueId);
+    }
+
     public short likes(final UUID userId, final UUID queueId, final UUID songId)
             throws SongNotQueuedException, QueueNotFoundException {
         return Likes.givenBy(userId, queueService.getQueuedSong(queueService.get(queueId), songId));
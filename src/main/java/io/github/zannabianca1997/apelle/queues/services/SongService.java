@@ -1,5 +1,9 @@
 package io.github.zannabianca1997.apelle.queues.services;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import jakarta.enterprise.context.ApplicationScoped;
 
 import io.github.zannabianca1997.apelle.queues.dtos.SongAddDto;
@@ -7,6 +11,7 @@ import io.github.zannabianca1997.apelle.queues.models.Song;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
 import io.github.zannabianca1997.apelle.youtube.exceptions.BadYoutubeApiResponseException;
 import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeVideoNotFoundException;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
 import io.github.zannabianca1997.apelle.youtube.services.YoutubeService;
 
 @ApplicationScoped
@@ -41,4 +46,41 @@ public class SongService {
         }
     }
 
+    /**
+     * Complete the definition of many songs, querying eventual apis in batches
+     * 
+     * @param songAddDtos The songs to add
+     * @return The completed songs, in the same order. Songs that could not be
+     *         found are {@code null}
+     * @throws BadYoutubeApiResponseException An error happened while talking to
+     *                                        youtube
+     */
+    public List<Song> fromDtos(final List<SongAddDto> songAddDtos) throws BadYoutubeApiResponseException {
+        final List<YoutubeSongAddDto> youtubeSongAddDtos = new ArrayList<>();
+        for (final SongAddDto songAddDto : songAddDtos) {
+            switch (songAddDto) {
+                case final YoutubeSongAddDto youtubeSongAddDto:
+                    youtubeSongAddDtos.add(youtubeSongAddDto);
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            String.format("Missing handler for class %s", songAddDto.getClass()));
+            }
+        }
+
+        final Map<String, YoutubeSong> youtubeSongs = youtubeService.fromDtos(youtubeSongAddDtos);
+
+        final List<Song> songs = new ArrayList<>(songAddDtos.size());
+        for (final SongAddDto songAddDto : songAddDtos) {
+            switch (songAddDto) {
+                case final YoutubeSongAddDto youtubeSongAddDto:
+                    songs.add(youtubeSongs.get(youtubeSongAddDto.getVideoId()));
+                    break;
+                default:
+                    throw new IllegalStateException("All kinds were checked above");
+            }
+        }
+        return songs;
+    }
+
 }
@@ -0,0 +1,135 @@
+package io.github.zannabianca1997.apelle.queues.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+import io.github.zannabianca1997.apelle.queues.configs.EventsConfig;
+import io.github.zannabianca1997.apelle.queues.dtos.events.EventTimingsDto;
+import io.github.zannabianca1997.apelle.queues.events.EventTimings;
+import io.github.zannabianca1997.apelle.queues.events.QueueEvent;
+import io.github.zannabianca1997.apelle.queues.exceptions.InvalidEventTimingsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Mark the stages passed by the queue events, and record the time spent
+ * between them.
+ *
+ * Times are measured with the wall clock, as the stages can happen on
+ * different nodes.
+ */
+@ApplicationScoped
+public class EventLagRecorder {
+    /**
+     * A step in the path of an event, measured from the end of the previous
+     * one
+     */
+    public enum Stage {
+        /** From the change to the commit of the transaction */
+        COMMIT,
+        /** From the commit to the stream of a listener */
+        BUS,
+        /** Filling the event for the listener, including waiting for a worker */
+        PERSONALIZATION,
+        /** From the personalized event to the connection of the listener */
+        WRITE,
+        /**
+         * From sending the event to receiving the acknowledgement, so twice the
+         * network latency plus the client processing
+         */
+        NETWORK,
+        /** From the change to receiving the acknowledgement */
+        TOTAL
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final EventsConfig eventsConfig;
+
+    public EventLagRecorder(final MeterRegistry meterRegistry, final EventsConfig eventsConfig) {
+        this.eventsConfig = eventsConfig;
+        for (final Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("apelle.queues.events.lag")
+                    .description("Time spent by the queue events in each stage of their delivery")
+                    .tag("stage", stage.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private void record(final Stage stage, final Instant from, final Instant to) {
+        // Clocks of different nodes can go backward
+        if (from != null && to != null && !to.isBefore(from)) {
+            timers.get(stage).record(Duration.between(from, to));
+        }
+    }
+
+    /**
+     * The transaction that produced the event completed
+     */
+    public QueueEvent committed(final QueueEvent event) {
+        final EventTimings timings = event.getTimings();
+        timings.setCommittedAt(Instant.now());
+        record(Stage.COMMIT, timings.getMutatedAt(), timings.getCommittedAt());
+        return event;
+    }
+
+    /**
+     * The event reached the stream of a listener
+     */
+    public QueueEvent delivered(final QueueEvent event) {
+        final EventTimings timings = event.getTimings();
+        timings.setDeliveredAt(Instant.now());
+        record(Stage.BUS, timings.getCommittedAt(), timings.getDeliveredAt());
+        return event;
+    }
+
+    /**
+     * The event was filled for a listener
+     */
+    public QueueEvent personalized(final QueueEvent event) {
+        final EventTimings timings = event.getTimings();
+        timings.setPersonalizedAt(Instant.now());
+        record(Stage.PERSONALIZATION, timings.getDeliveredAt(), timings.getPersonalizedAt());
+        return event;
+    }
+
+    /**
+     * The event is being written to the connection of a listener
+     */
+    public QueueEvent sent(final QueueEvent event) {
+        final EventTimings timings = event.getTimings();
+        timings.setSentAt(Instant.now());
+        record(Stage.WRITE, timings.getPersonalizedAt(), timings.getSentAt());
+        return event;
+    }
+
+    /**
+     * A listener acknowledged an event
+     *
+     * The timings are sent back by the client, so they are recorded only if
+     * they can belong to a recent event.
+     *
+     * @param timings The timings received with the event
+     * @throws InvalidEventTimingsException The timings are in the future, or too
+     *                                      old
+     */
+    public void acknowledged(final EventTimingsDto timings) throws InvalidEventTimingsException {
+        final Instant now = Instant.now();
+        checkRecent(Stage.NETWORK, timings.getSentAt(), now);
+        checkRecent(Stage.TOTAL, timings.getMutatedAt(), now);
+
+        record(Stage.NETWORK, timings.getSentAt(), now);
+        record(Stage.TOTAL, timings.getMutatedAt(), now);
+    }
+
+    private void checkRecent(final Stage stage, final Instant timing, final Instant now)
+            throws InvalidEventTimingsException {
+        if (timing.isAfter(now.plus(eventsConfig.ackMaxClockSkew()))
+                || timing.isBefore(now.minus(eventsConfig.ackMaxAge()))) {
+            throw new InvalidEventTimingsException(stage.name().toLowerCase(), timing);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.zannabianca1997.apelle.queues.utils;
+
+/**
+ * A keyed pseudo-random permutation of the integers in {@code [0, size)}.
+ *
+ * A balanced Feistel network is a bijection on the smallest even-bit domain
+ * covering {@code size}, whatever the round function. Values falling outside
+ * the range are fed back into the network (cycle walking) until they land
+ * inside it, restricting the bijection to {@code [0, size)}.
+ */
+public final class FeistelPermutation {
+    private static final int ROUNDS = 4;
+
+    private final long size;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys;
+
+    /**
+     * Create a permutation
+     *
+     * @param size The size of the permuted range. Must be in {@code [1, 2^62]}
+     * @param key  The key selecting the permutation
+     */
+    public FeistelPermutation(final long size, final long key) {
+        if (size < 1 || size > (1L << 62)) {
+            throw new IllegalArgumentException("Permutation size must be between 1 and 2^62, got %d".formatted(size));
+        }
+        this.size = size;
+
+        final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(size - 1));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        this.roundKeys = new long[ROUNDS];
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state = mix(state + 0x9E3779B97F4A7C15L);
+            roundKeys[i] = state;
+        }
+    }
+
+    /**
+     * @return The size of the permuted range
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Permute a value
+     *
+     * @param value The value to permute, in {@code [0, size)}
+     * @return The permuted value, in {@code [0, size)}
+     */
+    public long apply(final long value) {
+        if (value < 0 || value >= size) {
+            throw new IllegalArgumentException("Value %d is outside the permuted range".formatted(value));
+        }
+        long permuted = encrypt(value);
+        while (permuted >= size) {
+            permuted = encrypt(permuted);
+        }
+        return permuted;
+    }
+
+    private long encrypt(final long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (final long roundKey : roundKeys) {
+            final long next = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * Finalizer of SplitMix64, a cheap function with good avalanche
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
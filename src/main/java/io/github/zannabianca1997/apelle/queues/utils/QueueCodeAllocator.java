@@ -0,0 +1,157 @@
+package io.github.zannabianca1997.apelle.queues.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.queues.configs.QueueCodeConfigs;
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Allocate unique queue codes.
+ *
+ * Codes are derived from a database sequence: each value is mapped through a
+ * keyed permutation and written in the code alphabet, so two values never give
+ * the same code. The sequence is split in tiers of increasing code length. Only
+ * a fraction of each tier is used (one code every {@code 256^margin}), so valid
+ * codes remain hard to guess, as long as the key of the permutation is kept
+ * secret.
+ *
+ * Codes are taken from the database in batches and kept in a pool, refilled in
+ * the background when it runs low. The refill also skips codes already taken by
+ * queues created before the sequence existed.
+ */
+@ApplicationScoped
+public class QueueCodeAllocator {
+    private final QueueCodeConfigs queueCodeConfigs;
+    private final Logger log;
+
+    private final String alphabet;
+    private final Tier[] tiers;
+
+    private final LinkedBlockingQueue<String> pool;
+    private final AtomicBoolean refilling;
+
+    /**
+     * A range of the sequence, mapped to codes of the same length
+     *
+     * @param length      The length of the codes
+     * @param start       The first sequence value of the tier
+     * @param capacity    How many sequence values the tier holds
+     * @param permutation The permutation mapping the tier to the codes
+     */
+    private record Tier(int length, long start, long capacity, FeistelPermutation permutation) {
+    }
+
+    public QueueCodeAllocator(final QueueCodeConfigs queueCodeConfigs, final Logger log) {
+        this.queueCodeConfigs = queueCodeConfigs;
+        this.log = log;
+
+        this.alphabet = queueCodeConfigs.alphabet();
+        this.tiers = buildTiers(queueCodeConfigs);
+
+        this.pool = new LinkedBlockingQueue<>();
+        this.refilling = new AtomicBoolean(false);
+    }
+
+    private static Tier[] buildTiers(final QueueCodeConfigs queueCodeConfigs) {
+        final int base = queueCodeConfigs.alphabet().length();
+        // Same minimal length the random codes had
+        final int minLength = Math.max(1,
+                (int) (queueCodeConfigs.complexity().min() * Math.log(256) / Math.log(base)));
+        final double sparsity = Math.pow(256, queueCodeConfigs.complexity().margin());
+
+        final List<Tier> tiers = new ArrayList<>();
+        long start = 0;
+        long codes = 1;
+        for (int length = 1; codes <= (1L << 62) / base; length++) {
+            codes *= base;
+            if (length < minLength) {
+                continue;
+            }
+            final long capacity = Math.max(1, (long) (codes / sparsity));
+            tiers.add(new Tier(length, start, capacity,
+                    new FeistelPermutation(codes, queueCodeConfigs.key() ^ length)));
+            start += capacity;
+        }
+        if (tiers.isEmpty()) {
+            throw new IllegalStateException("The configured code complexity is too high");
+        }
+        return tiers.toArray(Tier[]::new);
+    }
+
+    /**
+     * Map a value of the sequence to its code
+     *
+     * @param index The sequence value
+     * @return The code
+     */
+    String code(final long index) {
+        for (final Tier tier : tiers) {
+            if (index < tier.start() + tier.capacity()) {
+                long value = tier.permutation().apply(index - tier.start());
+                final char[] code = new char[tier.length()];
+                for (int i = code.length - 1; i >= 0; i--) {
+                    code[i] = alphabet.charAt((int) (value % alphabet.length()));
+                    value /= alphabet.length();
+                }
+                return new String(code);
+            }
+        }
+        throw new IllegalStateException("Queue codes are exhausted");
+    }
+
+    /**
+     * Obtain a new unused code
+     *
+     * @return The allocated code
+     */
+    public String next() {
+        String code = pool.poll();
+        while (code == null) {
+            // The pool is cold (or was drained by a burst): fill it on this thread
+            log.debug("Queue code pool is empty, refilling synchronously");
+            refill();
+            code = pool.poll();
+        }
+        if (pool.size() < queueCodeConfigs.pool().lowWatermark()) {
+            scheduleRefill();
+        }
+        return code;
+    }
+
+    private void scheduleRefill() {
+        if (!refilling.compareAndSet(false, true)) {
+            // Already refilling
+            return;
+        }
+        Infrastructure.getDefaultWorkerPool().execute(() -> {
+            try {
+                refill();
+            } catch (final RuntimeException e) {
+                log.error("Failed to refill the queue code pool", e);
+            } finally {
+                refilling.set(false);
+            }
+        });
+    }
+
+    private void refill() {
+        final List<String> codes = QuarkusTransaction.requiringNew().call(() -> {
+            final List<String> generated = Queue.nextCodeIndexes(queueCodeConfigs.pool().batchSize()).stream()
+                    .map(this::code)
+                    .toList();
+            final Set<String> used = Queue.findUsedCodes(generated);
+            return generated.stream().filter(code -> !used.contains(code)).toList();
+        });
+        pool.addAll(codes);
+        log.debugf("Added %d codes to the queue code pool", codes.size());
+    }
+}
@@ -1,10 +1,22 @@
 package io.github.zannabianca1997.apelle.queues.utils;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.logging.Logger;
 
 import io.github.zannabianca1997.apelle.queues.events.QueueEvent;
+import io.github.zannabianca1997.apelle.queues.jfr.QueueFanOutEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.smallrye.mutiny.Multi;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.eventbus.EventBus;
@@ -25,14 +37,41 @@ public class QueueEventBus {
     final Logger log;
     final EventBus eventBus;
     final TransactionManager transactionManager;
+    final MeterRegistry meterRegistry;
+    final EventLagRecorder eventLagRecorder;
+    final Tracer tracer;
+
+    private static final AttributeKey<String> QUEUE_ID_ATTRIBUTE = AttributeKey.stringKey("apelle.queue.id");
+
+    /** Number of listeners of each queue, only for the queues with at least one */
+    private final Map<UUID, Integer> listeners = new ConcurrentHashMap<>();
 
     public QueueEventBus(
             final Logger log,
             final EventBus eventBus,
-            final TransactionManager transactionManager) {
+            final TransactionManager transactionManager,
+            final MeterRegistry meterRegistry,
+            final EventLagRecorder eventLagRecorder,
+            final Tracer tracer) {
         this.log = log;
         this.eventBus = eventBus;
         this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+        this.eventLagRecorder = eventLagRecorder;
+        this.tracer = tracer;
+
+        // Queues are not used as tags, as they are unbounded
+        Gauge.builder("apelle.queues.events.listeners", listeners,
+                l -> l.values().stream().mapToInt(Integer::intValue).sum())
+                .description("Event streams open on this node")
+                .register(meterRegistry);
+        Gauge.builder("apelle.queues.events.listened", listeners, Map::size)
+                .description("Queues with at least an event stream open on this node")
+                .register(meterRegistry);
+        Gauge.builder("apelle.queues.events.listeners.max", listeners,
+                l -> l.values().stream().mapToInt(Integer::intValue).max().orElse(0))
+                .description("Event streams open on this node for the most listened queue")
+                .register(meterRegistry);
     }
 
     // Use the full qualified class name to avoid collisions with other event buses
@@ -58,7 +97,10 @@ public class QueueEventBus {
      * 
      * @param event The event to publish
      */
+    @WithSpan
     public void publish(final QueueEvent event) {
+        Span.current().setAttribute(QUEUE_ID_ATTRIBUTE, event.getQueueId().toString());
+
         // Need to handle the transaction.
         //
         // As the events show the queue state, they need to be run AFTER the state has
@@ -67,9 +109,11 @@ public class QueueEventBus {
         try {
             if (transactionManager.getStatus() == Status.STATUS_NO_TRANSACTION) {
                 // Direct publish
-                doPublish(event);
+                doPublish(eventLagRecorder.committed(event));
             } else {
-                // Need to run the publish AFTER the transaction commits
+                // Need to run the publish AFTER the transaction commits. The trace of the
+                // request is carried along, as the synchronization could run elsewhere
+                final Context context = Context.current();
                 transactionManager.getTransaction().registerSynchronization(new Synchronization() {
                     @Override
                     public void beforeCompletion() {
@@ -78,7 +122,15 @@ public class QueueEventBus {
 
                     @Override
                     public void afterCompletion(final int status) {
-                        doPublish(event);
+                        final Span span = tracer.spanBuilder("QueueEventBus.afterCompletion")
+                                .setParent(context)
+                                .setAttribute(QUEUE_ID_ATTRIBUTE, event.getQueueId().toString())
+                                .startSpan();
+                        try (Scope scope = span.makeCurrent()) {
+                            doPublish(eventLagRecorder.committed(event));
+                        } finally {
+                            span.end();
+                        }
                     }
                 });
             }
@@ -89,7 +141,25 @@ public class QueueEventBus {
 
     private void doPublish(final QueueEvent event) {
         log.debugf("[queue=%s] Publishing event %s", event.getQueueId(), event.getClass());
+        final QueueFanOutEvent recorded = new QueueFanOutEvent();
+        recorded.begin();
         eventBus.publish(address(event.getQueueId()), JsonObject.mapFrom(event));
+        recorded.end();
+        if (recorded.shouldCommit()) {
+            recorded.queueId = event.getQueueId().toString();
+            recorded.type = event.getClass().getSimpleName();
+            recorded.subscribers = listeners.getOrDefault(event.getQueueId(), 0);
+            recorded.commit();
+        }
+        countEvent("apelle.queues.events.published", "Queue events published by this node", event);
+    }
+
+    private void countEvent(final String name, final String description, final QueueEvent event) {
+        Counter.builder(name)
+                .description(description)
+                .tag("type", event.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
     }
 
     /**
@@ -100,6 +170,11 @@ public class QueueEventBus {
      */
     public Multi<QueueEvent> events(final UUID queueId) {
         return eventBus.<JsonObject>consumer(address(queueId))
-                .toMulti().map(message -> message.body().mapTo(QueueEvent.class));
+                .toMulti().map(message -> eventLagRecorder.delivered(message.body().mapTo(QueueEvent.class)))
+                .onItem().invoke(event -> countEvent("apelle.queues.events.delivered",
+                        "Queue events delivered to the listeners on this node", event))
+                .onSubscription().invoke(() -> listeners.merge(queueId, 1, Integer::sum))
+                .onTermination().invoke(() -> listeners.computeIfPresent(queueId,
+                        (id, count) -> count > 1 ? count - 1 : null));
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package io.github.zannabianca1997.apelle.search.configs;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Configuration for the search of the songs already known
+ */
+@ConfigMapping(prefix = "apelle.search.catalog")
+public interface CatalogConfig {
+
+    /** If the known songs should be searched before the external sources */
+    @WithDefault("true")
+    boolean enabled();
+
+    /**
+     * Maximum number of known songs added in front of the first page.
+     * 
+     * They are never more than the requested page size.
+     */
+    @WithDefault("5")
+    @Positive
+    int maxResults();
+
+    /** How much a play counts compared to an enqueue in the ranking */
+    @WithDefault("2")
+    @PositiveOrZero
+    double playWeight();
+
+    /** Skipping the external sources when the known songs match well */
+    SkipExternalConfig skipExternal();
+
+    interface SkipExternalConfig {
+        /**
+         * If the external sources should be skipped when the known songs are
+         * enough
+         */
+        @WithDefault("false")
+        boolean enabled();
+
+        /** Minimum relevance of a known song to be counted as a strong match */
+        @WithDefault("0.8")
+        @DecimalMin("0")
+        @DecimalMax("1")
+        double minRelevance();
+
+        /** Number of strong matches needed to skip the external sources */
+        @WithDefault("3")
+        @Positive
+        int minResults();
+    }
+}
@@ -10,6 +10,7 @@ import io.github.zannabianca1997.apelle.common.dtos.PageRequest;
 import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
 import io.github.zannabianca1997.apelle.search.services.SearchService;
 import io.quarkus.security.Authenticated;
+import io.smallrye.mutiny.Uni;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.ws.rs.BeanParam;
 import jakarta.ws.rs.GET;
@@ -30,9 +31,10 @@ public class SearchResource {
             Search all available sources for a given song.
 
             The returned values are sorted by relevance. Each one contains the DTO one should send to the `/enqueue`
-            endpoint to add the corresponding song.""")
+            endpoint to add the corresponding song.
 
-    public Page<SearchedSongQueryDto> get(
+            The first page starts with the matching songs already enqueued by someone, ranked by popularity.""")
+    public Uni<Page<SearchedSongQueryDto>> get(
             @RestQuery("q") @Parameter(description = "Searched song query") @NotBlank final String query,
             @BeanParam final PageRequest pageRequest) {
         return searchService.search(query, pageRequest);
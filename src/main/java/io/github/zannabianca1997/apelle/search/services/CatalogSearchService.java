@@ -0,0 +1,87 @@
+package io.github.zannabianca1997.apelle.search.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.models.Song.CatalogMatch;
+import io.github.zannabianca1997.apelle.search.configs.CatalogConfig;
+import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
+import io.github.zannabianca1997.apelle.youtube.mappers.YoutubeSongMapper;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.NonNull;
+
+/**
+ * Search the songs already known to apelle.
+ * 
+ * Every song ever enqueued is saved in the database, so most searches can be
+ * answered without asking the external sources.
+ */
+@ApplicationScoped
+public class CatalogSearchService {
+    private final Logger log;
+    private final CatalogConfig catalogConfig;
+    private final YoutubeSongMapper youtubeSongMapper;
+
+    public CatalogSearchService(final CatalogConfig catalogConfig, final YoutubeSongMapper youtubeSongMapper,
+            final Logger log) {
+        this.catalogConfig = catalogConfig;
+        this.youtubeSongMapper = youtubeSongMapper;
+        this.log = log;
+    }
+
+    /**
+     * A known song matching a search
+     * 
+     * @param song      The song
+     * @param relevance How well the name matches the query, from 0 to 1
+     */
+    public record CatalogResult(SearchedSongQueryDto song, double relevance) {
+    }
+
+    /**
+     * Search the known songs
+     * 
+     * @param query The searched query
+     * @param limit The maximum number of results
+     * @return The songs found, best first
+     */
+    @Transactional
+    public List<CatalogResult> search(final @NonNull String query, final int limit) {
+        final List<CatalogMatch> matches = Song.searchCatalog(query.trim(), catalogConfig.playWeight(), limit);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        final Map<UUID, Song> songs = Song.<Song>list("id IN ?1", matches.stream().map(CatalogMatch::id).toList())
+                .stream().collect(Collectors.toMap(Song::getId, Function.identity()));
+
+        log.debugf("Found %d known songs for `%s`", matches.size(), query);
+
+        return matches.stream()
+                .map(match -> {
+                    final Song song = songs.get(match.id());
+                    // The song could have been deleted in the meantime
+                    return song != null ? new CatalogResult(toSearchedDto(song), match.relevance()) : null;
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private SearchedSongQueryDto toSearchedDto(final Song song) {
+        switch (song) {
+            case final YoutubeSong youtubeSong:
+                return youtubeSongMapper.toSearchedDto(youtubeSong);
+            default:
+                throw new IllegalStateException("Songs of kind %s cannot be searched".formatted(song.getKind()));
+        }
+    }
+}
@@ -1,13 +1,25 @@
 package io.github.zannabianca1997.apelle.search.services;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.jboss.logging.Logger;
 
 import io.github.zannabianca1997.apelle.common.dtos.Page;
+import io.github.zannabianca1997.apelle.common.dtos.PageInfo;
 import io.github.zannabianca1997.apelle.common.dtos.PageRequest;
+import io.github.zannabianca1997.apelle.queues.dtos.SongAddDto;
+import io.github.zannabianca1997.apelle.search.configs.CatalogConfig;
+import io.github.zannabianca1997.apelle.search.configs.CatalogConfig.SkipExternalConfig;
 import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
-import io.github.zannabianca1997.apelle.users.models.ApelleUser;
-import io.github.zannabianca1997.apelle.users.services.UsersService;
+import io.github.zannabianca1997.apelle.search.services.CatalogSearchService.CatalogResult;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeQuotaExceededException;
 import io.github.zannabianca1997.apelle.youtube.services.YoutubeService;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 
 @ApplicationScoped
@@ -15,22 +27,134 @@ public class SearchService {
     private final Logger log;
 
     private final YoutubeService youtubeService;
+    private final CatalogSearchService catalogSearchService;
+    private final CatalogConfig catalogConfig;
 
-    private final UsersService usersService;
+    private final SecurityIdentity securityIdentity;
 
-    public SearchService(final YoutubeService youtubeService, final UsersService usersService, final Logger log) {
+    public SearchService(final YoutubeService youtubeService, final CatalogSearchService catalogSearchService,
+            final CatalogConfig catalogConfig, final SecurityIdentity securityIdentity, final Logger log) {
         this.youtubeService = youtubeService;
-        this.usersService = usersService;
+        this.catalogSearchService = catalogSearchService;
+        this.catalogConfig = catalogConfig;
+        this.securityIdentity = securityIdentity;
         this.log = log;
     }
 
-    public Page<SearchedSongQueryDto> search(final String query, final PageRequest pageRequest) {
-        final ApelleUser current = usersService.getMe();
+    /**
+     * Search all the sources
+     * 
+     * The known songs are read from the database on a worker thread, while the
+     * external sources are awaited without holding any thread.
+     * 
+     * @param query       The searched query
+     * @param pageRequest The requested page
+     * @return The page of results. Fails with
+     *         {@link YoutubeQuotaExceededException} if the youtube quota is
+     *         exhausted and no known song matched
+     */
+    public Uni<Page<SearchedSongQueryDto>> search(final String query, final PageRequest pageRequest) {
+        // The user name is in the token, no need to load the user
+        log.infof("[user=%s] Searched `%s`", securityIdentity.getPrincipal().getName(), query);
+
+        if (!catalogConfig.enabled()) {
+            return youtubeService.search(query, pageRequest);
+        }
+
+        // The known songs are only shown in the first page, but are searched for
+        // every page: the external results are shifted to make room for them, and
+        // are filtered from the duplicates
+        final boolean firstPage = pageRequest.getPage() == null;
+
+        return Uni.createFrom()
+                .item(() -> catalogSearchService.search(query,
+                        Integer.min(catalogConfig.maxResults(), pageRequest.getPageSize())))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .chain(known -> {
+                    if (firstPage && isStrong(known)) {
+                        log.debugf("Known songs are enough for `%s`, not searching youtube", query);
+                        return Uni.createFrom().item(onlyKnown(known));
+                    }
+
+                    return youtubeService.search(query, pageRequest, known.size())
+                            .map(external -> merge(known, external, firstPage))
+                            .onFailure(YoutubeQuotaExceededException.class).recoverWithUni(e -> {
+                                if (!firstPage || known.isEmpty()) {
+                                    return Uni.createFrom().failure(e);
+                                }
+                                log.warnf("Youtube quota exhausted, serving only the known songs for `%s`", query);
+                                return Uni.createFrom().item(onlyKnown(known));
+                            });
+                });
+    }
 
-        log.infof("[user=%s] Searched `%s`", current.getId(), query);
+    /**
+     * A page with only the known songs
+     */
+    private static Page<SearchedSongQueryDto> onlyKnown(final List<CatalogResult> known) {
+        return Page.<SearchedSongQueryDto>builder()
+                .items(known.stream().map(CatalogResult::song).toList())
+                .pageInfo(PageInfo.builder()
+                        .totalItems(known.size())
+                        .items(known.size())
+                        .number(0)
+                        .build())
+                .build();
+    }
 
-        // Only source is youtube, delegating to it
-        return youtubeService.search(query, pageRequest);
+    /**
+     * Check if the known songs match well enough to skip the external sources
+     */
+    private boolean isStrong(final List<CatalogResult> known) {
+        final SkipExternalConfig config = catalogConfig.skipExternal();
+        return config.enabled()
+                && known.stream().filter(result -> result.relevance() >= config.minRelevance())
+                        .count() >= config.minResults();
     }
 
+    /**
+     * Put the known songs in front of an external search
+     *
+     * The external page must be shifted by the number of known songs, so the
+     * merged page never exceeds the page size. Songs found in both are shown
+     * only once, as known songs, on every page. The total counts them twice, as
+     * the duplicates in the pages not yet searched are unknown: it is an upper
+     * bound, like the one of the external source.
+     *
+     * @param known     The known songs
+     * @param external  The shifted page of the external search
+     * @param firstPage If the known songs must be shown
+     */
+    private static Page<SearchedSongQueryDto> merge(final List<CatalogResult> known,
+            final Page<SearchedSongQueryDto> external, final boolean firstPage) {
+        if (known.isEmpty()) {
+            return external;
+        }
+
+        final List<SearchedSongQueryDto> items = new ArrayList<>(known.size() + external.getItems().size());
+        final Set<SongAddDto> seen = new HashSet<>();
+        for (final CatalogResult result : known) {
+            if (firstPage) {
+                items.add(result.song());
+            }
+            seen.add(result.song().getEnqueueData());
+        }
+        for (final SearchedSongQueryDto item : external.getItems()) {
+            if (!seen.contains(item.getEnqueueData())) {
+                items.add(item);
+            }
+        }
+
+        final PageInfo pageInfo = external.getPageInfo();
+        return Page.<SearchedSongQueryDto>builder()
+                .items(items)
+                .pageInfo(PageInfo.builder()
+                        .totalItems(pageInfo.getTotalItems() + known.size())
+                        .items(items.size())
+                        .number(pageInfo.getNumber())
+                        .next(pageInfo.getNext())
+                        .prev(pageInfo.getPrev())
+                        .build())
+                .build();
+    }
 }
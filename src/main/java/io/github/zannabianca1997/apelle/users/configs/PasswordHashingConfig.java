@@ -0,0 +1,40 @@
+package io.github.zannabianca1997.apelle.users.configs;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Configuration of the password hashing pool
+ */
+@ConfigMapping(prefix = "apelle.users.password-hashing")
+public interface PasswordHashingConfig {
+
+    /**
+     * Number of threads dedicated to hashing and verifying passwords.
+     *
+     * Bcrypt is CPU bound, so this effectively limits how many cores signups and
+     * logins can take away from the queue traffic.
+     */
+    @WithDefault("2")
+    @Positive(message = "At least one thread is needed to hash passwords")
+    int threads();
+
+    /**
+     * Maximum number of requests waiting for a free hashing thread.
+     *
+     * Requests over this limit are refused immediately with a 503.
+     */
+    @WithDefault("64")
+    @Min(value = 0, message = "The wait queue cannot have a negative size")
+    int queueSize();
+
+    /**
+     * Time the clients are asked to wait before retrying a refused request
+     */
+    @WithDefault("PT2S")
+    Duration retryAfter();
+}
@@ -0,0 +1,42 @@
+package io.github.zannabianca1997.apelle.users.exceptions;
+
+import java.time.Duration;
+
+import org.eclipse.microprofile.openapi.annotations.headers.Header;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.Getter;
+import lombok.NonNull;
+
+@Getter
+public class PasswordHashingBusyException extends Exception {
+    private final Duration retryAfter;
+
+    public PasswordHashingBusyException(final @NonNull Duration retryAfter) {
+        super("Too many concurrent logins or signups, retry in %s seconds"
+                .formatted(Math.max(1, retryAfter.toSeconds())));
+        this.retryAfter = retryAfter;
+    }
+
+    @Provider
+    @APIResponse(responseCode = "503", description = "Too many concurrent logins or signups", headers = {
+            @Header(name = HttpHeaders.RETRY_AFTER, description = "Seconds to wait before retrying")
+    }, content = {
+            @Content(mediaType = "text/plain")
+    })
+    public static class Mapper implements ExceptionMapper<PasswordHashingBusyException> {
+        @Override
+        public Response toResponse(final PasswordHashingBusyException exception) {
+            return RestResponse.ResponseBuilder.create(Status.SERVICE_UNAVAILABLE, exception.getMessage())
+                    .header(HttpHeaders.RETRY_AFTER, Math.max(1, exception.getRetryAfter().toSeconds()))
+                    .build().toResponse();
+        }
+    }
+}
@@ -20,5 +20,6 @@ public interface UserMapper {
 
     @Mapping(target = "role", ignore = true)
     @Mapping(target = "roles", expression = "java( Set.of( ApelleUserRole.USER ) )")
-    ApelleUser createUser(UserCreateDto userCreateDto);
+    @Mapping(target = "password", source = "passwordHash")
+    ApelleUser createUser(UserCreateDto userCreateDto, String passwordHash);
 }
@@ -10,7 +10,6 @@ import org.hibernate.annotations.OnDeleteAction;
 
 import io.github.zannabianca1997.apelle.queues.models.Likes;
 import io.github.zannabianca1997.apelle.queues.models.QueueUser;
-import io.quarkus.elytron.security.common.BcryptUtil;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -92,12 +91,19 @@ public class ApelleUser extends PanacheEntityBase {
         return find("name", name).firstResult();
     }
 
+    /**
+     * Create a new user
+     * 
+     * @param name     The username
+     * @param password The already hashed password
+     * @param roles    The roles of the user
+     */
     @Builder
     public ApelleUser(final @NonNull String name, final @NonNull String password,
             final @Singular Set<ApelleUserRole> roles) {
         super();
         this.name = name;
-        this.password = BcryptUtil.bcryptHash(password);
+        this.password = password;
         this.roles = roles;
         this.queues = new ArrayList<>();
         this.likes = new ArrayList<>();
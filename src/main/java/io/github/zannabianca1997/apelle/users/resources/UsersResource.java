@@ -12,14 +12,17 @@ import org.jboss.resteasy.reactive.RestResponse.StatusCode;
 
 import io.github.zannabianca1997.apelle.users.dtos.UserCreateDto;
 import io.github.zannabianca1997.apelle.users.dtos.UserQueryDto;
+import io.github.zannabianca1997.apelle.users.exceptions.PasswordHashingBusyException;
 import io.github.zannabianca1997.apelle.users.exceptions.UserAlreadyExistsException;
 import io.github.zannabianca1997.apelle.users.exceptions.UserNotFoundByIdException;
 import io.github.zannabianca1997.apelle.users.exceptions.UserNotFoundByNameException;
 import io.github.zannabianca1997.apelle.users.mappers.UserMapper;
 import io.github.zannabianca1997.apelle.users.models.ApelleUser;
 import io.github.zannabianca1997.apelle.users.services.UsersService;
+import io.github.zannabianca1997.apelle.users.utils.PasswordHasher;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.annotation.security.PermitAll;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 
@@ -29,26 +32,46 @@ public class UsersResource {
     private final UserMapper userMapper;
     private final UsersService usersService;
     private final UserResource userResource;
+    private final PasswordHasher passwordHasher;
 
     public UsersResource(final UserMapper userMapper, final UsersService usersService,
-            final UserResource userResource) {
+            final UserResource userResource, final PasswordHasher passwordHasher) {
         this.userMapper = userMapper;
         this.usersService = usersService;
         this.userResource = userResource;
+        this.passwordHasher = passwordHasher;
     }
 
+    /**
+     * Create a user
+     * 
+     * No thread is held while the password is hashed. The returned uni fails
+     * with {@link UserAlreadyExistsException} if the name is taken, and with
+     * {@link PasswordHashingBusyException} if too many passwords are being
+     * processed.
+     */
     @POST
     @PermitAll
-    @Transactional
     @Operation(summary = "Create a user", description = "Create an user that can access queues and vote on them")
     @APIResponse(responseCode = "201", description = "The user created", content = {
             @Content(mediaType = "application/json", schema = @Schema(implementation = UserQueryDto.class))
     })
     @ResponseStatus(StatusCode.CREATED)
-    public UserQueryDto signup(final UserCreateDto userCreateDto) throws UserAlreadyExistsException {
-        final ApelleUser user = userMapper.createUser(userCreateDto);
-        usersService.signup(user);
-        return userMapper.toDto(user);
+    // The exceptions are declared so that their responses are documented
+    public Uni<UserQueryDto> signup(final UserCreateDto userCreateDto)
+            throws UserAlreadyExistsException, PasswordHashingBusyException {
+        return passwordHasher.hash(userCreateDto.getPassword())
+                // Saving the user needs the database, so it must run on the worker pool
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .chain(passwordHash -> {
+                    final ApelleUser user = userMapper.createUser(userCreateDto, passwordHash);
+                    try {
+                        usersService.signup(user);
+                    } catch (final UserAlreadyExistsException e) {
+                        return Uni.createFrom().failure(e);
+                    }
+                    return Uni.createFrom().item(userMapper.toDto(user));
+                });
     }
 
     @Path("/me")
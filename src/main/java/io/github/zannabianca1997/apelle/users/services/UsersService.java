@@ -10,6 +10,7 @@ import io.github.zannabianca1997.apelle.users.models.ApelleUser;
 import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
 import io.quarkus.security.identity.SecurityIdentity;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
 
 @ApplicationScoped
 public class UsersService {
@@ -26,6 +27,7 @@ public class UsersService {
      * @return The created user
      * @throws UserAlreadyExistsException The user already exists
      */
+    @Transactional
     public ApelleUser signup(final ApelleUser user) throws UserAlreadyExistsException {
         if (ApelleUser.findByName(user.getName()) != null) {
             throw new UserAlreadyExistsException(user.getName());
@@ -0,0 +1,153 @@
+package io.github.zannabianca1997.apelle.users.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.users.configs.PasswordHashingConfig;
+import io.github.zannabianca1997.apelle.users.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.elytron.security.common.BcryptUtil;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.NonNull;
+
+/**
+ * Hash and verify passwords on a dedicated, bounded pool.
+ *
+ * Bcrypt is slow by design. Running it on the request threads means a burst of
+ * signups (everyone scanning the QR code at the start of a party) would starve
+ * the pool serving the queues. Here the work is confined to a fixed number of
+ * threads, and requests that would have to wait too long are refused
+ * immediately.
+ */
+@ApplicationScoped
+public class PasswordHasher {
+    private final Logger log;
+    private final PasswordHashingConfig config;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(final PasswordHashingConfig config, final MeterRegistry meterRegistry, final Logger log) {
+        this.log = log;
+        this.config = config;
+
+        // A zero sized queue is a direct handoff: either a thread is free or the
+        // request is refused
+        final BlockingQueue<Runnable> waiting = config.queueSize() > 0
+                ? new ArrayBlockingQueue<>(config.queueSize())
+                : new SynchronousQueue<>();
+
+        this.executor = new ThreadPoolExecutor(
+                config.threads(), config.threads(),
+                0, TimeUnit.MILLISECONDS,
+                waiting,
+                new PasswordHasherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("apelle.users.password")
+                .description("Time spent hashing or verifying a password")
+                .tag("operation", "hash")
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("apelle.users.password")
+                .description("Time spent hashing or verifying a password")
+                .tag("operation", "verify")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("apelle.users.password.rejected")
+                .description("Password operations refused because the pool was full")
+                .register(meterRegistry);
+        Gauge.builder("apelle.users.password.queue", executor, e -> e.getQueue().size())
+                .description("Password operations waiting for a free thread")
+                .register(meterRegistry);
+        Gauge.builder("apelle.users.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password operations currently running")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hash a password.
+     *
+     * The returned uni will fail with {@link PasswordHashingBusyException} if too
+     * many passwords are being processed.
+     *
+     * @param password The plain text password
+     * @return The bcrypt hash of the password
+     */
+    @WithSpan
+    public Uni<String> hash(final @NonNull String password) {
+        return run(() -> BcryptUtil.bcryptHash(password), hashTimer);
+    }
+
+    /**
+     * Check a password against a hash.
+     *
+     * The returned uni will fail with {@link PasswordHashingBusyException} if too
+     * many passwords are being processed.
+     *
+     * @param password The plain text password
+     * @param hash     The bcrypt hash to check against
+     * @return If the password matches
+     */
+    @WithSpan
+    public Uni<Boolean> matches(final @NonNull String password, final @NonNull String hash) {
+        return run(() -> BcryptUtil.matches(password, hash), verifyTimer);
+    }
+
+    /**
+     * Run a task on the pool, when subscribed
+     */
+    private <T> Uni<T> run(final Supplier<T> task, final Timer timer) {
+        return Uni.createFrom().deferred(() -> {
+            try {
+                return Uni.createFrom().completionStage(submit(task, timer));
+            } catch (final PasswordHashingBusyException e) {
+                return Uni.createFrom().failure(e);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(final Supplier<T> task, final Timer timer)
+            throws PasswordHashingBusyException {
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(task), executor);
+        } catch (final RejectedExecutionException e) {
+            rejected.increment();
+            log.warnf("Refused password operation, %d already waiting", executor.getQueue().size());
+            throw new PasswordHashingBusyException(config.retryAfter());
+        }
+    }
+
+    private static final class PasswordHasherThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "apelle-password-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.zannabianca1997.apelle.users.utils;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.security.AuthenticationFailedException;
+import io.quarkus.security.identity.AuthenticationRequestContext;
+import io.quarkus.security.identity.IdentityProvider;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.identity.request.UsernamePasswordAuthenticationRequest;
+import io.quarkus.security.runtime.QuarkusPrincipal;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Authenticate users by username and password.
+ *
+ * This takes precedence over the provider generated from {@link ApelleUser}, so
+ * that the password check runs on the {@link PasswordHasher} pool instead of
+ * the worker pool.
+ */
+@ApplicationScoped
+public class PasswordIdentityProvider implements IdentityProvider<UsernamePasswordAuthenticationRequest> {
+    private final PasswordHasher passwordHasher;
+
+    public PasswordIdentityProvider(final PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
+    /**
+     * The data needed to authenticate a user, detached from the persistence
+     * context
+     */
+    private record Credentials(String name, String passwordHash, Set<String> roles) {
+    }
+
+    @Override
+    public Class<UsernamePasswordAuthenticationRequest> getRequestType() {
+        return UsernamePasswordAuthenticationRequest.class;
+    }
+
+    @Override
+    public int priority() {
+        // Run before the provider generated by quarkus-security-jpa
+        return IdentityProvider.super.priority() + 1;
+    }
+
+    @Override
+    public Uni<SecurityIdentity> authenticate(final UsernamePasswordAuthenticationRequest request,
+            final AuthenticationRequestContext context) {
+        final String password = new String(request.getPassword().getPassword());
+
+        return Uni.createFrom().item(() -> findCredentials(request.getUsername()))
+                // Reading the user needs the database, so it must run on the worker pool
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem().ifNull().failWith(AuthenticationFailedException::new)
+                .chain(credentials -> passwordHasher.matches(password, credentials.passwordHash())
+                        .map(matches -> {
+                            if (!matches) {
+                                throw new AuthenticationFailedException();
+                            }
+                            return QuarkusSecurityIdentity.builder()
+                                    .setPrincipal(new QuarkusPrincipal(credentials.name()))
+                                    .addRoles(credentials.roles())
+                                    .addCredential(request.getPassword())
+                                    .build();
+                        }));
+    }
+
+    private Credentials findCredentials(final String name) {
+        return QuarkusTransaction.joiningExisting().call(() -> {
+            final ApelleUser user = ApelleUser.findByName(name);
+            if (user == null) {
+                return null;
+            }
+            return new Credentials(user.getName(), user.getPassword(),
+                    user.getRoles().stream().map(ApelleUserRole::toString).collect(Collectors.toSet()));
+        });
+    }
+}
@@ -9,6 +9,7 @@ import jakarta.ws.rs.QueryParam;
 import lombok.NonNull;
 
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePaginatedDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistItemDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSearchResultDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
 
@@ -20,6 +21,19 @@ public interface YoutubeApiClient {
     @ClientQueryParam(name = "part", value = "snippet,contentDetails")
     YoutubePaginatedDto<YoutubeVideoDataDto> getDataById(@NonNull @QueryParam("id") String videoId);
 
+    /**
+     * Fetch the data of many videos at once.
+     * 
+     * Videos that do not exist are missing from the response.
+     * 
+     * @param videoIds Comma separated list of at most 50 video ids
+     * @return The found videos
+     */
+    @GET
+    @Path("/videos")
+    @ClientQueryParam(name = "part", value = "snippet,contentDetails")
+    YoutubePaginatedDto<YoutubeVideoDataDto> getDataByIds(@NonNull @QueryParam("id") String videoIds);
+
     @GET
     @Path("/search")
     @ClientQueryParam(name = "part", value = "snippet")
@@ -40,4 +54,20 @@ public interface YoutubeApiClient {
             @QueryParam("maxResults") int maxResults,
             @QueryParam("q") String query,
             @QueryParam("pageToken") String pageToken);
+
+    /**
+     * Fetch a page of the items of a playlist.
+     * 
+     * @param maxResults Number of items in the page, at most 50
+     * @param playlistId The playlist id
+     * @param pageToken  The page to fetch, {@code null} for the first one
+     * @return The items in the page
+     */
+    @GET
+    @Path("/playlistItems")
+    @ClientQueryParam(name = "part", value = "contentDetails")
+    YoutubePaginatedDto<YoutubePlaylistItemDto> getPlaylistItems(
+            @QueryParam("maxResults") int maxResults,
+            @NonNull @QueryParam("playlistId") String playlistId,
+            @QueryParam("pageToken") String pageToken);
 }
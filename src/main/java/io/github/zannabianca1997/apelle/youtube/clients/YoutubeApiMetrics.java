@@ -0,0 +1,122 @@
+package io.github.zannabianca1997.apelle.youtube.clients;
+
+import java.util.function.Supplier;
+
+import io.github.zannabianca1997.apelle.youtube.jfr.YoutubeCallEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response.Status;
+
+/**
+ * Time the calls to the youtube api.
+ *
+ * Calls are tagged with the client method and the outcome, so the error rate of
+ * each method can be obtained from the counts. Calls are recorded when the
+ * client returns, so the calls that failed without a response, like refused
+ * connections and timeouts, are counted too, with the {@code UNKNOWN} outcome.
+ * While a flight recording is running, each call is also recorded as a
+ * {@link YoutubeCallEvent}.
+ */
+@ApplicationScoped
+public class YoutubeApiMetrics {
+    /** Status recorded for the calls that received no response */
+    private static final int NO_RESPONSE = 0;
+
+    private final MeterRegistry meterRegistry;
+
+    public YoutubeApiMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A call being recorded
+     */
+    private final class Call {
+        private final String method;
+        private final Timer.Sample sample;
+        private final YoutubeCallEvent event;
+
+        private Call(final String method) {
+            this.method = method;
+            this.sample = Timer.start(meterRegistry);
+            final YoutubeCallEvent event = new YoutubeCallEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                this.event = event;
+            } else {
+                this.event = null;
+            }
+        }
+
+        private void succeeded() {
+            stop(Status.OK.getStatusCode(), Outcome.SUCCESS);
+        }
+
+        private void failed(final Throwable failure) {
+            if (failure instanceof final WebApplicationException webException
+                    && webException.getResponse() != null) {
+                final int status = webException.getResponse().getStatus();
+                stop(status, Outcome.forStatus(status));
+            } else {
+                stop(NO_RESPONSE, Outcome.UNKNOWN);
+            }
+        }
+
+        private void stop(final int status, final Outcome outcome) {
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = method;
+                    event.status = status;
+                    event.commit();
+                }
+            }
+
+            sample.stop(Timer.builder("apelle.youtube.calls")
+                    .description("Calls to the youtube api")
+                    .tag("method", method)
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Record a non blocking call
+     *
+     * @param method The called client method
+     * @param call   Start the call. Invoked at each subscription
+     * @return The call, recorded when it completes
+     */
+    public <T> Uni<T> time(final String method, final Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            final Call recorded = new Call(method);
+            return call.get()
+                    .onItem().invoke(recorded::succeeded)
+                    .onFailure().invoke(recorded::failed);
+        });
+    }
+
+    /**
+     * Record a blocking call
+     *
+     * @param method The called client method
+     * @param call   The call
+     * @return The result of the call
+     */
+    public <T> T timeBlocking(final String method, final Supplier<T> call) {
+        final Call recorded = new Call(method);
+        final T result;
+        try {
+            result = call.get();
+        } catch (final RuntimeException e) {
+            recorded.failed(e);
+            throw e;
+        }
+        recorded.succeeded();
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.zannabianca1997.apelle.youtube.clients;
+
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+import io.quarkus.rest.client.reactive.ClientQueryParam;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
+import lombok.NonNull;
+
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePaginatedDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistItemDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSearchResultDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
+
+/**
+ * Non blocking variant of {@link YoutubeApiClient}.
+ * 
+ * Waiting for youtube does not hold a thread, so slow responses do not consume
+ * the worker pool.
+ */
+@RegisterRestClient(configKey = "youtube-api")
+@ClientQueryParam(name = "key", value = "${apelle.songs.sources.youtube.api-key}")
+public interface YoutubeReactiveApiClient {
+    /**
+     * Fetch the data of many videos at once.
+     * 
+     * Videos that do not exist are missing from the response.
+     * 
+     * @param videoIds Comma separated list of at most 50 video ids
+     * @return The found videos
+     */
+    @GET
+    @Path("/videos")
+    @ClientQueryParam(name = "part", value = "snippet,contentDetails")
+    Uni<YoutubePaginatedDto<YoutubeVideoDataDto>> getDataByIds(@NonNull @QueryParam("id") String videoIds);
+
+    @GET
+    @Path("/search")
+    @ClientQueryParam(name = "part", value = "snippet")
+    @ClientQueryParam(name = "type", value = "video")
+    @ClientQueryParam(name = "safeSearch", value = "none")
+    @ClientQueryParam(name = "videoEmbeddable", value = "true")
+    Uni<YoutubePaginatedDto<YoutubeSearchResultDto>> getSearchByKeywords(
+            @QueryParam("maxResults") int maxResults,
+            @QueryParam("q") String query);
+
+    @GET
+    @Path("/search")
+    @ClientQueryParam(name = "part", value = "snippet")
+    @ClientQueryParam(name = "type", value = "video")
+    @ClientQueryParam(name = "safeSearch", value = "none")
+    @ClientQueryParam(name = "videoEmbeddable", value = "true")
+    Uni<YoutubePaginatedDto<YoutubeSearchResultDto>> getSearchPage(
+            @QueryParam("maxResults") int maxResults,
+            @QueryParam("q") String query,
+            @QueryParam("pageToken") String pageToken);
+
+    /**
+     * Fetch a page of the items of a playlist
+     * 
+     * @param maxResults The size of the page, at most 50
+     * @param playlistId The id of the playlist
+     * @param pageToken  The page to fetch, {@code null} for the first one
+     * @return The items in the page
+     */
+    @GET
+    @Path("/playlistItems")
+    @ClientQueryParam(name = "part", value = "contentDetails")
+    Uni<YoutubePaginatedDto<YoutubePlaylistItemDto>> getPlaylistItems(
+            @QueryParam("maxResults") int maxResults,
+            @NonNull @QueryParam("playlistId") String playlistId,
+            @QueryParam("pageToken") String pageToken);
+}
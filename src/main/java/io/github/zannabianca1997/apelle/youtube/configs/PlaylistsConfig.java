@@ -0,0 +1,38 @@
+package io.github.zannabianca1997.apelle.youtube.configs;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Configuration for the youtube playlists import
+ */
+@ConfigMapping(prefix = "apelle.songs.sources.youtube.playlists")
+public interface PlaylistsConfig {
+
+    /** Number of playlist items asked to youtube in a single request */
+    @WithDefault("50")
+    @Max(value = 50, message = "Youtube support fetching a maximum of 50 playlist items at a time")
+    @Positive(message = "At least one item must be fetched")
+    int pageSize();
+
+    /**
+     * Maximum number of items imported from a single playlist.
+     * 
+     * Items after this are ignored.
+     */
+    @WithDefault("5000")
+    @Positive
+    int maxItems();
+
+    /**
+     * How long the import waits for a page of the playlist.
+     * 
+     * After this the import fails, instead of holding the request thread.
+     */
+    @WithDefault("PT30S")
+    Duration pageTimeout();
+}
@@ -0,0 +1,61 @@
+package io.github.zannabianca1997.apelle.youtube.configs;
+
+import java.time.ZoneId;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Configuration for the accounting of the youtube quota
+ */
+@ConfigMapping(prefix = "apelle.songs.sources.youtube.quota")
+public interface QuotaConfig {
+
+    /** If the usage of the quota should be limited */
+    @WithDefault("true")
+    boolean enabled();
+
+    /** Units available each day, across all nodes */
+    @WithDefault("10000")
+    @Positive
+    long dailyLimit();
+
+    /**
+     * Time zone of the daily reset.
+     * 
+     * Youtube resets the quota at midnight pacific time.
+     */
+    @WithDefault("America/Los_Angeles")
+    ZoneId resetZone();
+
+    /**
+     * Fraction of the daily quota each kind of request must leave to the more
+     * important ones.
+     * 
+     * Adding songs to the queues can always use the whole quota.
+     */
+    ReservesConfig reserves();
+
+    interface ReservesConfig {
+        /** Reserve left by the first page of the searches */
+        @WithDefault("0.1")
+        @DecimalMin("0")
+        @DecimalMax("1")
+        double firstPage();
+
+        /** Reserve left by the following pages of the searches */
+        @WithDefault("0.3")
+        @DecimalMin("0")
+        @DecimalMax("1")
+        double deepPage();
+
+        /** Reserve left by the requests done in advance */
+        @WithDefault("0.5")
+        @DecimalMin("0")
+        @DecimalMax("1")
+        double background();
+    }
+}
@@ -4,8 +4,11 @@ import java.time.Duration;
 
 import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 
 /**
  * Configuration for the youtube search api
@@ -38,4 +41,70 @@ public interface SearchConfig {
     @WithDefault("P1D")
     Duration cacheExpiration();
 
+    /** Deduplication of concurrent identical searches */
+    SingleFlightConfig singleFlight();
+
+    interface SingleFlightConfig {
+        /**
+         * How long a node can hold the lock on a query.
+         * 
+         * Other nodes wait at most this long before searching on their own.
+         */
+        @WithDefault("PT5S")
+        Duration lockTimeout();
+
+        /** How often a waiting node checks if the search was completed */
+        @WithDefault("PT0.05S")
+        Duration pollInterval();
+    }
+
+    /** Background fetching of the next youtube page */
+    PrefetchConfig prefetch();
+
+    interface PrefetchConfig {
+        /** If the next page should be fetched in advance */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Fraction of the cached results a user must read before the next page is
+         * fetched
+         */
+        @WithDefault("0.6")
+        @DecimalMin("0")
+        @DecimalMax("1")
+        double threshold();
+
+        /** Maximum number of prefetches in each window, across all nodes */
+        @WithDefault("100")
+        @PositiveOrZero
+        long budget();
+
+        /** Length of the window the prefetch budget refers to */
+        @WithDefault("PT1H")
+        Duration budgetWindow();
+    }
+
+    /** In memory cache of the searches, in front of redis */
+    LocalCacheConfig localCache();
+
+    interface LocalCacheConfig {
+        /** If the searches should be kept in memory */
+        @WithDefault("true")
+        boolean enabled();
+
+        /** Maximum number of searches kept in memory */
+        @WithDefault("1000")
+        @Positive
+        int maxEntries();
+
+        /**
+         * Maximum time a search is kept in memory.
+         * 
+         * Searches are dropped earlier if they expire in redis, or if another node
+         * extends them.
+         */
+        @WithDefault("PT5M")
+        Duration maxAge();
+    }
 }
@@ -0,0 +1,54 @@
+package io.github.zannabianca1997.apelle.youtube.configs;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Configuration for the youtube videos api
+ */
+@ConfigMapping(prefix = "apelle.songs.sources.youtube.videos")
+public interface VideosConfig {
+
+    /**
+     * How long to wait for other lookups before asking youtube.
+     * 
+     * Lookups arriving in this window are sent to youtube in a single request.
+     */
+    @WithDefault("PT0.02S")
+    Duration batchWindow();
+
+    /** Maximum number of videos asked to youtube in a single request */
+    @WithDefault("50")
+    @Max(value = 50, message = "Youtube support fetching a maximum of 50 videos at a time")
+    @Positive(message = "At least one video must be fetched")
+    int batchSize();
+
+    /**
+     * How long a lookup waits for its batch to be answered.
+     * 
+     * After this the lookup fails, instead of holding the request thread.
+     */
+    @WithDefault("PT10S")
+    Duration timeout();
+
+    /**
+     * How long the data of a video is kept in redis.
+     * 
+     * Titles and durations rarely change, so they can be kept for long.
+     */
+    @WithDefault("P7D")
+    Duration cacheExpiration();
+
+    /**
+     * Resolve the videos found by searches in advance.
+     * 
+     * Each youtube page of results costs a request to the videos api, but adding
+     * a found song to a queue does not need to contact youtube.
+     */
+    @WithDefault("true")
+    boolean enrichSearches();
+}
@@ -0,0 +1,21 @@
+package io.github.zannabianca1997.apelle.youtube.dtos;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+@Schema(description = "A youtube playlist to add to a queue")
+public class YoutubePlaylistImportDto {
+    @NotBlank
+    @JsonProperty(required = true, value = "playlist_id")
+    @Schema(description = "The playlist ID")
+    private String playlistId;
+}
@@ -0,0 +1,25 @@
+package io.github.zannabianca1997.apelle.youtube.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Response of the youtube api
+ */
+@Data
+@Builder
+@Jacksonized
+public class YoutubePlaylistItemDto {
+    @NonNull
+    private ContentDetails contentDetails;
+
+    @Data
+    @Builder
+    @Jacksonized
+    public static class ContentDetails {
+        @NonNull
+        private String videoId;
+    }
+}
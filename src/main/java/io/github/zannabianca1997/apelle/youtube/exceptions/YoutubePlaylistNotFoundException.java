@@ -0,0 +1,33 @@
+package io.github.zannabianca1997.apelle.youtube.exceptions;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.Getter;
+import lombok.NonNull;
+
+@Getter
+public class YoutubePlaylistNotFoundException extends Exception {
+    private final String playlistId;
+
+    public YoutubePlaylistNotFoundException(final @NonNull String playlistId) {
+        super("The playlist `%s` does not exist".formatted(playlistId));
+        this.playlistId = playlistId;
+    }
+
+    @Provider
+    @APIResponse(responseCode = "404", description = "The requested playlist does not exist", content = {
+            @Content(mediaType = "text/plain")
+    })
+    public static class Mapper implements ExceptionMapper<YoutubePlaylistNotFoundException> {
+        @Override
+        public Response toResponse(final YoutubePlaylistNotFoundException exception) {
+            return RestResponse.status(Status.NOT_FOUND, exception.getMessage()).toResponse();
+        }
+    }
+}
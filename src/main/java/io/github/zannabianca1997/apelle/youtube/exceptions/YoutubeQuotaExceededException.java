@@ -0,0 +1,32 @@
+package io.github.zannabianca1997.apelle.youtube.exceptions;
+
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.experimental.StandardException;
+
+/**
+ * The youtube quota left for the request was exhausted.
+ *
+ * This is a kind of {@link BadYoutubeApiResponseException}, so callers that do
+ * not handle it on its own report it as a failure of youtube.
+ */
+@StandardException
+public class YoutubeQuotaExceededException extends BadYoutubeApiResponseException {
+
+    @Provider
+    @APIResponse(responseCode = "503", description = "The youtube quota is exhausted for today", content = {
+            @Content(mediaType = "text/plain")
+    })
+    public static class Mapper implements ExceptionMapper<YoutubeQuotaExceededException> {
+        @Override
+        public Response toResponse(final YoutubeQuotaExceededException exception) {
+            return RestResponse.status(Status.SERVICE_UNAVAILABLE, exception.getMessage()).toResponse();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.zannabianca1997.apelle.youtube.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A call to the youtube api, recorded by the flight recorder.
+ */
+@Name("io.github.zannabianca1997.apelle.YoutubeCall")
+@Label("Youtube Call")
+@Category({ "Apelle", "Youtube" })
+@Description("A call to the youtube api")
+@StackTrace(false)
+public class YoutubeCallEvent extends jdk.jfr.Event {
+    @Label("Method")
+    @Description("The client method called")
+    public String method;
+
+    @Label("Status")
+    @Description("The HTTP status of the response, 0 if none was received")
+    public int status;
+}
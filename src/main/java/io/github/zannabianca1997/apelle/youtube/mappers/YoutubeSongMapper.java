@@ -87,6 +87,20 @@ public interface YoutubeSongMapper {
 
     ThumbnailQueryDto toSearchedDto(YoutubeThumbnailsDto.Thumbnail thumbnail);
 
+    @Mapping(source = "uri", target = "url")
+    @Mapping(source = "allThumbnails", target = "thumbnails")
+    @Mapping(source = "videoId", target = "enqueueData", qualifiedByName = "toAddDto")
+    SearchedSongQueryDto toSearchedDto(YoutubeSong song);
+
+    default URL toUrl(final URI uri) {
+        try {
+            return uri.toURL();
+        } catch (final MalformedURLException e) {
+            // This should not happen, as the url generated should always be valid
+            throw new RuntimeException(e);
+        }
+    }
+
     @Named("watchUrl")
     default URL watchURL(final String videoId) {
         try {
@@ -9,7 +9,11 @@ import lombok.Data;
 import lombok.NonNull;
 
 /**
- * Represent a search on youtube
+ * Represent a search on youtube.
+ *
+ * This is the layout searches were stored with before
+ * {@link CachedYoutubeSearchMeta}. It is only read to migrate the searches
+ * still in the cache.
  */
 @Data
 @AllArgsConstructor
@@ -0,0 +1,18 @@
+package io.github.zannabianca1997.apelle.youtube.models;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * State of a search on youtube.
+ *
+ * The results are stored separately, as a list that only grows.
+ *
+ * @param size                 Number of results stored
+ * @param totalResults         Number of results youtube declared
+ * @param nextYoutubePageToken Token of the next youtube page, {@code null} if
+ *                             the search is complete
+ */
+// Needed as the class is only used for REDIS, and not automatically discovered
+@RegisterForReflection
+public record CachedYoutubeSearchMeta(int size, int totalResults, String nextYoutubePageToken) {
+}
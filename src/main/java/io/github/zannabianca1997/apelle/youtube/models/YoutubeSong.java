@@ -5,10 +5,13 @@ import java.net.URISyntaxException;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.http.client.utils.URIBuilder;
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -53,6 +56,7 @@ public class YoutubeSong extends Song {
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "song_id")
     @MapKey(name = "size")
+    @Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
     @NonNull
     private Map<YoutubeThumbnailSize, YoutubeThumbnail> thumbnails;
 
@@ -116,4 +120,8 @@ public class YoutubeSong extends Song {
     public static YoutubeSong findByVideoId(final @NonNull String videoId) {
         return YoutubeSong.<YoutubeSong>find("videoId", videoId).singleResultOptional().orElse(null);
     }
+
+    public static List<YoutubeSong> findByVideoIds(final @NonNull Collection<String> videoIds) {
+        return YoutubeSong.<YoutubeSong>list("videoId IN ?1", videoIds);
+    }
 }
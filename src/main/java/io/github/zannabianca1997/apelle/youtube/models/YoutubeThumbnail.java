@@ -2,6 +2,8 @@ package io.github.zannabianca1997.apelle.youtube.models;
 
 import java.net.URL;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
@@ -9,6 +11,7 @@ import org.hibernate.type.SqlTypes;
 
 import io.github.zannabianca1997.apelle.queues.models.Thumbnail;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -25,6 +28,9 @@ import lombok.ToString;
 
 /**
  * A thumbnail returned from youtube
+ * 
+ * Thumbnails never change after the song is created, so they are cached as
+ * read only.
  */
 
 @Getter
@@ -34,6 +40,8 @@ import lombok.ToString;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Entity
 @Table(name = "youtube_thumbnail")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class YoutubeThumbnail extends PanacheEntityBase implements Thumbnail {
     /// The song this thumbnail belongs to
     @ManyToOne
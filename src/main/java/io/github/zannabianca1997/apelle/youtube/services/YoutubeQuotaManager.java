@@ -0,0 +1,216 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletionException;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.youtube.configs.QuotaConfig;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeQuotaExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.value.ValueCommands;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Account the usage of the youtube quota.
+ *
+ * Each call to the youtube api is charged its cost in quota units before being
+ * sent. The units used in the current day are counted in redis, so the limit is
+ * shared by all the nodes. The counter is refilled at each daily reset of
+ * youtube.
+ *
+ * Less important requests must leave part of the quota unused, so that when it
+ * runs low songs can still be added to the queues.
+ */
+@ApplicationScoped
+public class YoutubeQuotaManager {
+    private final Logger log;
+    private final QuotaConfig config;
+
+    private final ReactiveRedisDataSource redis;
+    private final ValueCommands<String, Long> counters;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * A call to the youtube api
+     */
+    @Getter
+    public enum Operation {
+        SEARCH(100),
+        VIDEOS(1),
+        PLAYLIST_ITEMS(1);
+
+        /** Quota units charged by youtube for each call */
+        private final int cost;
+
+        Operation(final int cost) {
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * How important a call is, from the most to the least
+     */
+    public enum Priority {
+        /** Obtaining the data of songs being added to a queue */
+        ENQUEUE,
+        /** The first page of a search */
+        FIRST_PAGE,
+        /** The following pages of a search */
+        DEEP_PAGE,
+        /** Calls done in advance, that no one is waiting for */
+        BACKGROUND
+    }
+
+    public YoutubeQuotaManager(final ReactiveRedisDataSource reactiveRedisDataSource,
+            final RedisDataSource redisDataSource, final QuotaConfig config, final MeterRegistry meterRegistry,
+            final Logger log) {
+        this.log = log;
+        this.config = config;
+        this.redis = reactiveRedisDataSource;
+        this.counters = redisDataSource.value(Long.class);
+        this.meterRegistry = meterRegistry;
+
+        for (final Priority priority : Priority.values()) {
+            Gauge.builder("apelle.youtube.quota.remaining", this, manager -> manager.remaining(priority))
+                    .description("Youtube quota units still available today")
+                    .tag("priority", priority.name())
+                    .baseUnit("units")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Charge a call to the quota
+     *
+     * @param operation The call that will be done
+     * @param priority  How important the call is
+     * @return Completes when the call can be done, or fails with
+     *         {@link YoutubeQuotaExceededException} if not enough quota is left
+     */
+    public Uni<Void> acquire(final @NonNull Operation operation, final @NonNull Priority priority) {
+        if (!config.enabled()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return redis.execute("EVAL", ACQUIRE_SCRIPT, "1", counterKey(),
+                Long.toString(operation.getCost()), Long.toString(allowance(priority)),
+                Long.toString(COUNTER_EXPIRATION.toMillis()))
+                .chain(response -> {
+                    final long result = response.toLong();
+                    if (result < 0) {
+                        final long used = -result - 1;
+                        log.warnf("Youtube quota exhausted for %s calls at priority %s (%d units used today)",
+                                operation, priority, used);
+                        Counter.builder("apelle.youtube.quota.rejected")
+                                .description("Youtube calls not done as the quota was exhausted")
+                                .tag("operation", operation.name())
+                                .tag("priority", priority.name())
+                                .register(meterRegistry)
+                                .increment();
+                        return Uni.createFrom().failure(new YoutubeQuotaExceededException(
+                                "The youtube quota available for this request is exhausted for today"));
+                    }
+
+                    Counter.builder("apelle.youtube.quota.used")
+                            .description("Youtube quota units charged by this node")
+                            .tag("operation", operation.name())
+                            .tag("priority", priority.name())
+                            .baseUnit("units")
+                            .register(meterRegistry)
+                            .increment(operation.getCost());
+                    return Uni.createFrom().voidItem();
+                });
+    }
+
+    /**
+     * Charge a call to the quota, blocking until it is accounted
+     *
+     * @param operation The call that will be done
+     * @param priority  How important the call is
+     * @throws YoutubeQuotaExceededException Not enough quota is left for the
+     *                                       call
+     */
+    public void acquireAndAwait(final @NonNull Operation operation, final @NonNull Priority priority)
+            throws YoutubeQuotaExceededException {
+        try {
+            acquire(operation, priority).await().indefinitely();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof final YoutubeQuotaExceededException quotaExceeded) {
+                throw new YoutubeQuotaExceededException(quotaExceeded.getMessage(), quotaExceeded);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Units a priority can use each day
+     */
+    private long allowance(final Priority priority) {
+        final double reserve = switch (priority) {
+            case ENQUEUE -> 0;
+            case FIRST_PAGE -> config.reserves().firstPage();
+            case DEEP_PAGE -> config.reserves().deepPage();
+            case BACKGROUND -> config.reserves().background();
+        };
+        return (long) (config.dailyLimit() * (1 - reserve));
+    }
+
+    /**
+     * Units still available today to a priority.
+     *
+     * Read when the metrics are collected, outside of the request threads.
+     */
+    private double remaining(final Priority priority) {
+        try {
+            final Long used = counters.get(counterKey());
+            return Math.max(0, allowance(priority) - (used != null ? used : 0));
+        } catch (final RuntimeException e) {
+            // Redis is not reachable
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Key of the counter of the current day.
+     * 
+     * Namespaced with the class literal, so intercepting the bean does not
+     * rename it.
+     */
+    private String counterKey() {
+        return YoutubeQuotaManager.class.getName() + ":used:" + LocalDate.now(config.resetZone());
+    }
+
+    /**
+     * The counter of a day is kept a bit longer than the day, to cover clocks
+     * skew between the nodes
+     */
+    private static final Duration COUNTER_EXPIRATION = Duration.ofDays(2);
+
+    /**
+     * Charge the units if they are within the allowance.
+     *
+     * Returns the units used after the charge, or {@code -1 - used} if the
+     * charge was refused.
+     */
+    private static final String ACQUIRE_SCRIPT = """
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local cost = tonumber(ARGV[1])
+            if used + cost > tonumber(ARGV[2]) then
+                return -1 - used
+            end
+            used = redis.call('INCRBY', KEYS[1], cost)
+            if used == cost then
+                redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return used""";
+}
@@ -0,0 +1,434 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
+import io.github.zannabianca1997.apelle.youtube.configs.SearchConfig;
+import io.github.zannabianca1997.apelle.youtube.configs.SearchConfig.LocalCacheConfig;
+import io.github.zannabianca1997.apelle.youtube.models.CachedYoutubeSearch;
+import io.github.zannabianca1997.apelle.youtube.models.CachedYoutubeSearchMeta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.keys.ReactiveKeyCommands;
+import io.quarkus.redis.datasource.list.ReactiveListCommands;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.redis.datasource.pubsub.ReactivePubSubCommands;
+import io.quarkus.redis.datasource.value.ReactiveValueCommands;
+import io.quarkus.redis.datasource.value.SetArgs;
+import io.quarkus.runtime.Startup;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Cache of the youtube searches.
+ *
+ * Each search is stored in redis as two keys: a list of the results, that only
+ * grows as youtube pages are appended, and a small {@link CachedYoutubeSearchMeta}
+ * with the state of the search. Serving a page reads only the results in it.
+ *
+ * Each node keeps the state of the most used searches in memory too, with the
+ * results read so far, so paging through a search does not need to contact
+ * redis at each request. The in memory copies never outlive the redis entry.
+ * When another node extends a search the results read so far remain valid, and
+ * only the state is read again.
+ *
+ * Searches saved with the old single value layout are migrated when first read.
+ *
+ * All the redis accesses are non blocking, apart from the subscription to the
+ * invalidations done at startup.
+ */
+@ApplicationScoped
+@Startup
+public class YoutubeSearchCache {
+    private final Logger log;
+    private final LocalCacheConfig config;
+
+    private final ReactiveRedisDataSource redis;
+    private final ReactiveValueCommands<String, CachedYoutubeSearchMeta> metas;
+    private final ReactiveListCommands<String, SearchedSongQueryDto> items;
+    private final ReactiveKeyCommands<String> keys;
+    private final ReactivePubSubCommands<String> publisher;
+    private final PubSubCommands.RedisSubscriber subscriber;
+
+    private final String invalidationChannel;
+    /**
+     * Identifies this node in the invalidation messages
+     */
+    private final String nodeId;
+
+    /**
+     * A search held in memory
+     *
+     * @param meta      The state of the search, {@code null} if it must be read
+     *                  again
+     * @param prefix    The first results of the search. Never modified, only
+     *                  replaced.
+     * @param expiresAt When the copy must be dropped
+     */
+    private record LocalEntry(CachedYoutubeSearchMeta meta, List<SearchedSongQueryDto> prefix, Instant expiresAt) {
+        boolean isExpired() {
+            return !expiresAt.isAfter(Instant.now());
+        }
+    }
+
+    /**
+     * The searches held in memory, in access order.
+     *
+     * Guarded by itself.
+     */
+    private final LinkedHashMap<String, LocalEntry> local;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public YoutubeSearchCache(final ReactiveRedisDataSource reactiveRedisDataSource,
+            final RedisDataSource redisDataSource, final SearchConfig searchConfig,
+            final MeterRegistry meterRegistry, final Logger log) {
+        this.log = log;
+        this.config = searchConfig.localCache();
+
+        this.redis = reactiveRedisDataSource;
+        this.metas = reactiveRedisDataSource.value(CachedYoutubeSearchMeta.class);
+        this.items = reactiveRedisDataSource.list(SearchedSongQueryDto.class);
+        this.keys = reactiveRedisDataSource.key();
+        this.publisher = reactiveRedisDataSource.pubsub(String.class);
+
+        this.local = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, LocalEntry> eldest) {
+                return size() > config.maxEntries();
+            }
+        };
+
+        this.localHits = cacheCounter(meterRegistry, "local", "hit");
+        this.localMisses = cacheCounter(meterRegistry, "local", "miss");
+        this.redisHits = cacheCounter(meterRegistry, "redis", "hit");
+        this.redisMisses = cacheCounter(meterRegistry, "redis", "miss");
+
+        // Not getClass(), that would change if the bean were intercepted
+        this.invalidationChannel = YoutubeSearchCache.class.getName() + ":invalidations";
+        this.nodeId = UUID.randomUUID().toString();
+        this.subscriber = redisDataSource.pubsub(String.class).subscribe(invalidationChannel, this::onInvalidation);
+    }
+
+    private static Counter cacheCounter(final MeterRegistry meterRegistry, final String tier, final String result) {
+        return Counter.builder("apelle.youtube.search.cache")
+                .description("Lookups of youtube searches in the cache")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        subscriber.unsubscribe();
+    }
+
+    private static String metaKey(final String key) {
+        return key + ":meta";
+    }
+
+    static String itemsKey(final String key) {
+        return key + ":items";
+    }
+
+    /**
+     * Obtain the state of a cached search
+     *
+     * @param key The key of the search
+     * @return The state, or {@code null} if not cached
+     */
+    public Uni<CachedYoutubeSearchMeta> getMeta(final String key) {
+        if (config.enabled()) {
+            final LocalEntry entry = localEntry(key);
+            if (entry != null && entry.meta() != null) {
+                localHits.increment();
+                return Uni.createFrom().item(entry.meta());
+            }
+            localMisses.increment();
+        }
+        return getFreshMeta(key);
+    }
+
+    /**
+     * Obtain the state of a cached search from redis, skipping the memory
+     *
+     * @param key The key of the search
+     * @return The state, or {@code null} if not cached
+     */
+    public Uni<CachedYoutubeSearchMeta> getFreshMeta(final String key) {
+        return metas.get(metaKey(key))
+                .chain(meta -> meta != null ? Uni.createFrom().item(meta) : migrate(key))
+                .call(meta -> {
+                    if (meta == null) {
+                        redisMisses.increment();
+                        return Uni.createFrom().voidItem();
+                    }
+                    redisHits.increment();
+
+                    if (!config.enabled()) {
+                        return Uni.createFrom().voidItem();
+                    }
+                    final LocalEntry entry = localEntry(key);
+                    if (entry != null) {
+                        updateLocal(key, entry, new LocalEntry(meta, entry.prefix(), entry.expiresAt()));
+                        return Uni.createFrom().voidItem();
+                    }
+                    return keys.pttl(metaKey(key)).invoke(ttl -> {
+                        if (ttl > 0) {
+                            keepLocal(key, new LocalEntry(meta, List.of(), expiresAt(Duration.ofMillis(ttl))));
+                        }
+                    });
+                });
+    }
+
+    /**
+     * Obtain some of the results of a cached search
+     *
+     * @param key   The key of the search
+     * @param start Index of the first result
+     * @param end   Index after the last result. Must not exceed the stored
+     *              results.
+     * @return The results, unmodifiable: the ones held in memory are shared
+     *         between the readers
+     */
+    public Uni<List<SearchedSongQueryDto>> getItems(final String key, final int start, final int end) {
+        if (start >= end) {
+            return Uni.createFrom().item(List.of());
+        }
+
+        final LocalEntry entry = config.enabled() ? localEntry(key) : null;
+        if (entry != null && entry.prefix().size() >= end) {
+            localHits.increment();
+            return Uni.createFrom().item(entry.prefix().subList(start, end));
+        }
+        if (config.enabled()) {
+            localMisses.increment();
+        }
+
+        return items.lrange(itemsKey(key), start, end - 1).invoke(read -> {
+            redisHits.increment();
+
+            if (entry != null && entry.prefix().size() == start) {
+                // Reading the results in order: remember them
+                final List<SearchedSongQueryDto> prefix = new ArrayList<>(end);
+                prefix.addAll(entry.prefix());
+                prefix.addAll(read);
+                updateLocal(key, entry, new LocalEntry(entry.meta(), List.copyOf(prefix), entry.expiresAt()));
+            }
+        }).map(Collections::unmodifiableList);
+    }
+
+    /**
+     * Save a new search
+     *
+     * @param key        The key of the search
+     * @param results    The first results
+     * @param meta       The state of the search
+     * @param expiration When the search must be forgotten
+     */
+    public Uni<Void> create(final String key, final List<SearchedSongQueryDto> results,
+            final CachedYoutubeSearchMeta meta, final Duration expiration) {
+        return redis.withTransaction(tx -> {
+            Uni<Void> commands = tx.key().del(itemsKey(key));
+            if (!results.isEmpty()) {
+                commands = commands
+                        .chain(() -> tx.list(SearchedSongQueryDto.class).rpush(itemsKey(key),
+                                results.toArray(SearchedSongQueryDto[]::new)))
+                        .chain(() -> tx.key().pexpire(itemsKey(key), expiration));
+            }
+            return commands.chain(() -> tx.value(CachedYoutubeSearchMeta.class).set(metaKey(key), meta,
+                    new SetArgs().px(expiration)));
+        }).chain(() -> {
+            if (config.enabled()) {
+                keepLocal(key, new LocalEntry(meta, List.copyOf(results), expiresAt(expiration)));
+            }
+            return publishInvalidation(key);
+        });
+    }
+
+    /**
+     * Append results to a search
+     *
+     * The results are appended only if the search was not extended by someone
+     * else in the meantime, as they would be duplicated.
+     *
+     * @param key      The key of the search
+     * @param previous The state the new results follow
+     * @param results  The new results
+     * @param meta     The new state of the search
+     * @return If the results were appended
+     */
+    public Uni<Boolean> append(final String key, final CachedYoutubeSearchMeta previous,
+            final List<SearchedSongQueryDto> results, final CachedYoutubeSearchMeta meta) {
+        return redis.withTransaction(
+                ds -> ds.value(CachedYoutubeSearchMeta.class).get(metaKey(key))
+                        .chain(current -> previous.equals(current)
+                                // Milliseconds before the search expires
+                                ? ds.key().pttl(metaKey(key))
+                                : Uni.createFrom().<Long>nullItem()),
+                (ttl, tx) -> {
+                    if (ttl == null) {
+                        return tx.discard();
+                    }
+                    Uni<Void> commands = Uni.createFrom().voidItem();
+                    if (!results.isEmpty()) {
+                        // The list does not exist if the search had no results yet: it
+                        // must expire with the search
+                        commands = tx.list(SearchedSongQueryDto.class).rpush(itemsKey(key),
+                                results.toArray(SearchedSongQueryDto[]::new));
+                        if (ttl > 0) {
+                            commands = commands
+                                    .chain(() -> tx.key().pexpire(itemsKey(key), Duration.ofMillis(ttl)));
+                        }
+                    }
+                    return commands.chain(() -> tx.value(CachedYoutubeSearchMeta.class).set(metaKey(key), meta,
+                            new SetArgs().xx().keepttl()));
+                },
+                metaKey(key))
+                .chain(result -> {
+                    if (result.discarded()) {
+                        log.debugf("Search `%s` was extended concurrently, dropping our results", key);
+                        return Uni.createFrom().item(false);
+                    }
+
+                    if (config.enabled()) {
+                        final LocalEntry entry = localEntry(key);
+                        if (entry != null) {
+                            List<SearchedSongQueryDto> prefix = entry.prefix();
+                            if (prefix.size() == previous.size()) {
+                                // The results read so far are complete, we can add the new ones
+                                final List<SearchedSongQueryDto> extended = new ArrayList<>(meta.size());
+                                extended.addAll(prefix);
+                                extended.addAll(results);
+                                prefix = List.copyOf(extended);
+                            }
+                            updateLocal(key, entry, new LocalEntry(meta, prefix, entry.expiresAt()));
+                        }
+                    }
+                    return publishInvalidation(key).replaceWith(true);
+                });
+    }
+
+    /**
+     * Move a search saved with the old layout to the new one
+     *
+     * @return The state of the migrated search, or {@code null} if there was none
+     */
+    private Uni<CachedYoutubeSearchMeta> migrate(final String key) {
+        return redis.withTransaction(
+                ds -> ds.value(CachedYoutubeSearch.class).get(key)
+                        .chain(old -> old == null
+                                ? Uni.createFrom().<Legacy>nullItem()
+                                : ds.key().pttl(key)
+                                        .map(ttl -> ttl > 0 ? new Legacy(old, Duration.ofMillis(ttl)) : null)),
+                (old, tx) -> {
+                    if (old == null) {
+                        return tx.discard();
+                    }
+                    final CachedYoutubeSearch search = old.search();
+                    Uni<Void> commands = tx.key().del(itemsKey(key));
+                    if (!search.getFound().isEmpty()) {
+                        commands = commands
+                                .chain(() -> tx.list(SearchedSongQueryDto.class).rpush(itemsKey(key),
+                                        search.getFound().toArray(SearchedSongQueryDto[]::new)))
+                                .chain(() -> tx.key().pexpire(itemsKey(key), old.ttl()));
+                    }
+                    return commands
+                            .chain(() -> tx.value(CachedYoutubeSearchMeta.class).set(metaKey(key), toMeta(search),
+                                    new SetArgs().px(old.ttl())))
+                            .chain(() -> tx.key().del(key).replaceWithVoid());
+                },
+                // Another node migrating at the same time aborts this transaction
+                key)
+                .chain(result -> {
+                    final Legacy old = result.getPreTransactionResult();
+                    if (old == null) {
+                        return Uni.createFrom().nullItem();
+                    }
+                    if (result.discarded()) {
+                        // Someone else migrated it
+                        return metas.get(metaKey(key));
+                    }
+                    log.debugf("Migrated search `%s` to the append only layout", key);
+                    return Uni.createFrom().item(toMeta(old.search()));
+                });
+    }
+
+    private record Legacy(CachedYoutubeSearch search, Duration ttl) {
+    }
+
+    private static CachedYoutubeSearchMeta toMeta(final CachedYoutubeSearch search) {
+        return new CachedYoutubeSearchMeta(search.getFound().size(), search.getTotalResults(),
+                search.getNextYoutubePageToken());
+    }
+
+    private Instant expiresAt(final Duration ttl) {
+        return Instant.now().plus(ttl.compareTo(config.maxAge()) < 0 ? ttl : config.maxAge());
+    }
+
+    /**
+     * Obtain the local copy of a search, if not expired
+     */
+    private LocalEntry localEntry(final String key) {
+        synchronized (local) {
+            final LocalEntry entry = local.get(key);
+            if (entry != null && entry.isExpired()) {
+                local.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void keepLocal(final String key, final LocalEntry entry) {
+        synchronized (local) {
+            local.put(key, entry);
+        }
+    }
+
+    /**
+     * Replace a local copy, unless it was changed in the meantime
+     */
+    private void updateLocal(final String key, final LocalEntry old, final LocalEntry updated) {
+        synchronized (local) {
+            local.replace(key, old, updated);
+        }
+    }
+
+    private Uni<Void> publishInvalidation(final String key) {
+        // Other nodes must read the state again
+        return publisher.publish(invalidationChannel, nodeId + " " + key);
+    }
+
+    private void onInvalidation(final String message) {
+        final int separator = message.indexOf(' ');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            // Malformed, or sent by us
+            return;
+        }
+        final String key = message.substring(separator + 1);
+        synchronized (local) {
+            final LocalEntry entry = local.get(key);
+            if (entry != null) {
+                // The results are only appended, so the ones read are still valid
+                local.put(key, new LocalEntry(null, entry.prefix(), entry.expiresAt()));
+                log.debugf("Search `%s` was extended by another node", key);
+            }
+        }
+    }
+}
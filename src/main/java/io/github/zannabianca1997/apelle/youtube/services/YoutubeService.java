@@ -1,77 +1,129 @@
 package io.github.zannabianca1997.apelle.youtube.services;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response.Status;
 import lombok.NonNull;
 import io.github.zannabianca1997.apelle.common.dtos.Page;
 import io.github.zannabianca1997.apelle.common.dtos.PageInfo;
 import io.github.zannabianca1997.apelle.common.dtos.PageRequest;
 import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
 import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiClient;
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiMetrics;
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeReactiveApiClient;
+import io.github.zannabianca1997.apelle.youtube.configs.PlaylistsConfig;
 import io.github.zannabianca1997.apelle.youtube.configs.SearchConfig;
+import io.github.zannabianca1997.apelle.youtube.configs.SearchConfig.PrefetchConfig;
+import io.github.zannabianca1997.apelle.youtube.configs.SearchConfig.SingleFlightConfig;
+import io.github.zannabianca1997.apelle.youtube.configs.VideosConfig;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePaginatedDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistItemDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSearchResultDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
-import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
 import io.github.zannabianca1997.apelle.youtube.exceptions.BadYoutubeApiResponseException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubePlaylistNotFoundException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeQuotaExceededException;
 import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeVideoNotFoundException;
 import io.github.zannabianca1997.apelle.youtube.mappers.YoutubeSongMapper;
-import io.github.zannabianca1997.apelle.youtube.models.CachedYoutubeSearch;
+import io.github.zannabianca1997.apelle.youtube.models.CachedYoutubeSearchMeta;
 import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
-import io.quarkus.redis.datasource.RedisDataSource;
-import io.quarkus.redis.datasource.value.SetArgs;
-import io.quarkus.redis.datasource.value.ValueCommands;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Operation;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Priority;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.value.ReactiveValueCommands;
+import io.smallrye.mutiny.Uni;
 
 @ApplicationScoped
 public class YoutubeService {
+    private static final AttributeKey<String> VIDEO_ID_ATTRIBUTE = AttributeKey.stringKey("apelle.youtube.video_id");
+    private static final AttributeKey<String> SEARCH_PAGE_ATTRIBUTE = AttributeKey.stringKey("apelle.search.page");
 
-    private final YoutubeApiClient youtubeApiVideosClient;
+    private final YoutubeApiClient youtubeApiClient;
     private final YoutubeSongMapper songMapper;
     private final Logger log;
-    private final ValueCommands<String, CachedYoutubeSearch> redisDataSource;
+    private final YoutubeSearchCache searchCache;
     private final SearchConfig searchConfig;
+    private final YoutubeVideoResolver videoResolver;
+    private final PlaylistsConfig playlistsConfig;
+    private final VideosConfig videosConfig;
+    private final YoutubeQuotaManager quotaManager;
+    private final YoutubeReactiveApiClient youtubeApiVideosClient;
+    private final YoutubeApiMetrics youtubeApiMetrics;
+    private final ReactiveRedisDataSource redis;
+    private final ReactiveValueCommands<String, Long> counters;
+
+    /**
+     * Searches being extended by this node, by key
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<CachedYoutubeSearchMeta>> inFlightSearches;
 
     public YoutubeService(
-            @RestClient final YoutubeApiClient youtubeApiVideosClient,
+            @RestClient final YoutubeApiClient youtubeApiClient,
+            @RestClient final YoutubeReactiveApiClient youtubeApiVideosClient,
+            final YoutubeApiMetrics youtubeApiMetrics,
             final YoutubeSongMapper songMapper,
             final Logger log,
-            final RedisDataSource redisDataSource,
-            final SearchConfig searchConfig) {
+            final ReactiveRedisDataSource redisDataSource,
+            final YoutubeSearchCache searchCache,
+            final SearchConfig searchConfig,
+            final YoutubeVideoResolver videoResolver,
+            final PlaylistsConfig playlistsConfig,
+            final VideosConfig videosConfig,
+            final YoutubeQuotaManager quotaManager) {
+        this.youtubeApiClient = youtubeApiClient;
         this.youtubeApiVideosClient = youtubeApiVideosClient;
+        this.youtubeApiMetrics = youtubeApiMetrics;
         this.songMapper = songMapper;
         this.log = log;
-        this.redisDataSource = redisDataSource.value(CachedYoutubeSearch.class);
+        this.redis = redisDataSource;
+        this.counters = redisDataSource.value(Long.class);
+        this.searchCache = searchCache;
         this.searchConfig = searchConfig;
-    }
-
-    private YoutubeVideoDataDto getVideoData(final String videoId)
-            throws BadYoutubeApiResponseException, YoutubeVideoNotFoundException {
-        final var videos = youtubeApiVideosClient.getDataById(videoId);
-        if (videos.getItems().size() > 1) {
-            throw new BadYoutubeApiResponseException("Multiple videos returned for a single id");
-        }
-        if (videos.getItems().isEmpty()) {
-            throw new YoutubeVideoNotFoundException(videoId);
-        }
-        return videos.unwrapSingle();
+        this.videoResolver = videoResolver;
+        this.playlistsConfig = playlistsConfig;
+        this.videosConfig = videosConfig;
+        this.quotaManager = quotaManager;
+        this.inFlightSearches = new ConcurrentHashMap<>();
     }
 
     /**
      * Complete the definition of a song by querying the youtube API
      * 
+     * Songs found by a search are usually already resolved, and do not need to
+     * contact youtube.
+     * 
      * @param youtubeSongAddDto The data provided by the user
      * @return The completed song entity
      * @throws BadYoutubeApiResponseException An error happened while talking to
      *                                        youtube
      * @throws YoutubeVideoNotFoundException
      */
+    @WithSpan
     public YoutubeSong fromDto(final YoutubeSongAddDto youtubeSongAddDto)
             throws BadYoutubeApiResponseException, YoutubeVideoNotFoundException {
+        Span.current().setAttribute(VIDEO_ID_ATTRIBUTE, youtubeSongAddDto.getVideoId());
+
         // Try to obtain it from the database
         final YoutubeSong cached = YoutubeSong.findByVideoId(youtubeSongAddDto.getVideoId());
         if (cached != null) {
@@ -79,10 +131,117 @@ public class YoutubeService {
         }
 
         // Failed: asking the youtube gods
-        final var videoData = getVideoData(youtubeSongAddDto.getVideoId());
+        final var videoData = videoResolver.get(youtubeSongAddDto.getVideoId());
         return songMapper.fromDto(youtubeSongAddDto, videoData);
     }
 
+    /**
+     * Complete the definition of many songs, querying youtube in batches
+     * 
+     * @param youtubeSongAddDtos The songs to add
+     * @return The completed songs, by video id. Videos that do not exist are
+     *         missing
+     * @throws BadYoutubeApiResponseException An error happened while talking to
+     *                                        youtube
+     */
+    @WithSpan
+    public Map<String, YoutubeSong> fromDtos(final Collection<YoutubeSongAddDto> youtubeSongAddDtos)
+            throws BadYoutubeApiResponseException {
+        final Map<String, YoutubeSongAddDto> byVideoId = new LinkedHashMap<>();
+        for (final YoutubeSongAddDto youtubeSongAddDto : youtubeSongAddDtos) {
+            byVideoId.putIfAbsent(youtubeSongAddDto.getVideoId(), youtubeSongAddDto);
+        }
+        if (byVideoId.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        // Obtain the known ones from the database in a single query
+        final Map<String, YoutubeSong> songs = new HashMap<>();
+        for (final YoutubeSong cached : YoutubeSong.findByVideoIds(byVideoId.keySet())) {
+            songs.put(cached.getVideoId(), cached);
+        }
+
+        // Ask youtube for the others
+        final var missing = byVideoId.keySet().stream().filter(videoId -> !songs.containsKey(videoId)).toList();
+        if (!missing.isEmpty()) {
+            videoResolver.getAll(missing).forEach(
+                    (videoId, videoData) -> songs.put(videoId, songMapper.fromDto(byVideoId.get(videoId), videoData)));
+        }
+
+        return songs;
+    }
+
+    /**
+     * A page of songs from a playlist
+     * 
+     * @param songs         The songs in the page
+     * @param nextPageToken The token of the next page, {@code null} if this is
+     *                      the last one
+     */
+    public record PlaylistPage(List<YoutubeSongAddDto> songs, String nextPageToken) {
+    }
+
+    /**
+     * Obtain a page of the songs in a playlist
+     * 
+     * @param playlistId The id of the playlist
+     * @param pageToken  The page to obtain, {@code null} for the first one
+     * @return The songs in the page
+     * @throws YoutubePlaylistNotFoundException The playlist does not exist
+     * @throws YoutubeQuotaExceededException    The youtube quota is exhausted
+     */
+    public PlaylistPage getPlaylistPage(final @NonNull String playlistId, final String pageToken)
+            throws YoutubePlaylistNotFoundException, YoutubeQuotaExceededException {
+        quotaManager.acquireAndAwait(Operation.PLAYLIST_ITEMS, Priority.ENQUEUE);
+        final YoutubePaginatedDto<YoutubePlaylistItemDto> items;
+        try {
+            items = youtubeApiMetrics.timeBlocking("getPlaylistItems",
+                    () -> youtubeApiClient.getPlaylistItems(playlistsConfig.pageSize(), playlistId, pageToken));
+        } catch (final WebApplicationException e) {
+            if (e.getResponse().getStatus() == Status.NOT_FOUND.getStatusCode()) {
+                throw new YoutubePlaylistNotFoundException(playlistId);
+            }
+            throw e;
+        }
+
+        return toPlaylistPage(playlistId, items);
+    }
+
+    /**
+     * Obtain a page of the songs in a playlist, without holding a thread while
+     * youtube answers
+     * 
+     * @param playlistId The id of the playlist
+     * @param pageToken  The page to obtain, {@code null} for the first one
+     * @return The songs in the page. Fails with
+     *         {@link YoutubePlaylistNotFoundException} if the playlist does not
+     *         exist, and with {@link YoutubeQuotaExceededException} if the
+     *         youtube quota is exhausted
+     */
+    public Uni<PlaylistPage> fetchPlaylistPage(final @NonNull String playlistId, final String pageToken) {
+        return quotaManager.acquire(Operation.PLAYLIST_ITEMS, Priority.ENQUEUE)
+                .chain(() -> youtubeApiMetrics.time("getPlaylistItems",
+                        () -> youtubeApiVideosClient.getPlaylistItems(playlistsConfig.pageSize(), playlistId,
+                                pageToken)))
+                .onFailure(e -> e instanceof WebApplicationException webException
+                        && webException.getResponse().getStatus() == Status.NOT_FOUND.getStatusCode())
+                .transform(e -> new YoutubePlaylistNotFoundException(playlistId))
+                .map(items -> toPlaylistPage(playlistId, items));
+    }
+
+    private PlaylistPage toPlaylistPage(final String playlistId,
+            final YoutubePaginatedDto<YoutubePlaylistItemDto> items) {
+        log.debugf("Fetched %d items of playlist %s", items.getItems().size(), playlistId);
+
+        return new PlaylistPage(
+                items.getItems().stream()
+                        .<YoutubeSongAddDto>map(item -> YoutubeSongAddDto.builder()
+                                .videoId(item.getContentDetails().getVideoId())
+                                .build())
+                        .toList(),
+                items.getNextPageToken());
+    }
+
     /**
      * Normalize a query to improve cache reuse
      */
@@ -95,97 +254,413 @@ public class YoutubeService {
                 .toLowerCase();
     }
 
+    /**
+     * Namespace of the redis keys.
+     * 
+     * This is not {@code getClass()}, that is the generated subclass when the
+     * bean is intercepted: the keys must not depend on the interceptors.
+     */
+    private static final String REDIS_NAMESPACE = YoutubeService.class.getName();
+
     /**
      * Calculate an unique key for a search.
      * 
      * The key is namespaced with the class name,
      */
-    private String redisKey(final String query) {
-        return getClass().getName() + ":search:" + query;
+    private static String redisKey(final String query) {
+        return REDIS_NAMESPACE + ":search:" + query;
     }
 
-    public Page<SearchedSongQueryDto> search(@NonNull String query, @NonNull final PageRequest pageRequest) {
-        query = normalizeQuery(query);
-        final var key = redisKey(query);
+    /**
+     * Search youtube
+     * 
+     * No thread is held while waiting for youtube or redis. If the quota does not
+     * allow to extend the search, the results already cached are served.
+     * 
+     * @param query       The searched query
+     * @param pageRequest The requested page
+     * @return The page of results. Fails with
+     *         {@link YoutubeQuotaExceededException} if the youtube quota is
+     *         exhausted and the search was never done before
+     */
+    @WithSpan
+    public Uni<Page<SearchedSongQueryDto>> search(@NonNull final String query,
+            @NonNull final PageRequest pageRequest) {
+        return search(query, pageRequest, 0);
+    }
+
+    /**
+     * Search youtube, leaving room for other items at the start of the results
+     * 
+     * The results are shifted back by the given number of items: the first page
+     * is shorter, and each other page starts where the previous one ended. The
+     * page info counts only the youtube results.
+     * 
+     * @param query       The searched query
+     * @param pageRequest The requested page
+     * @param shift       The number of items shown before the results, at most
+     *                    the page size
+     * @return The page of results. Fails with
+     *         {@link YoutubeQuotaExceededException} if the youtube quota is
+     *         exhausted and the search was never done before
+     */
+    @WithSpan
+    public Uni<Page<SearchedSongQueryDto>> search(@NonNull final String query,
+            @NonNull final PageRequest pageRequest, final int shift) {
+        if (pageRequest.getPage() != null) {
+            Span.current().setAttribute(SEARCH_PAGE_ATTRIBUTE, pageRequest.getPage());
+        }
 
-        boolean shouldSaveAtTheEnd = false;
+        final String normalized = normalizeQuery(query);
+        final var key = redisKey(normalized);
 
         // Calculate page limits
         final int page = pageRequest.getPage() != null
                 ? pageTokenToPageNumber(pageRequest.getPage())
                 : 0;
 
-        final int pageStart = page * pageRequest.getPageSize();
-        final int pageEnd = pageStart + pageRequest.getPageSize();
+        final int pageStart = Integer.max(0, page * pageRequest.getPageSize() - shift);
+        final int pageEnd = (page + 1) * pageRequest.getPageSize() - shift;
+        // A page filled by the shifted items still needs the search, for the
+        // total and the next page
+        final int needed = Integer.max(pageEnd, 1);
 
-        // Fetch the search from the redis cache if present
-        var cached = redisDataSource.get(key);
+        // Fetch the search from the cache if present
+        return searchCache.getMeta(key)
+                .chain(cached -> {
+                    // Check the youtube query limit
+                    final var currentNumberOfItems = cached != null ? cached.size() : 0;
+                    if (needed > currentNumberOfItems
+                            && (needed - currentNumberOfItems) > searchConfig.queriesAllowedPerRequest()
+                                    * searchConfig.pageSize()) {
+                        // TODO: change in a application exception
+                        return Uni.createFrom().failure(new BadRequestException(
+                                "Page would require too many youtube requests. Ask for a nearer page first"));
+                    }
 
-        final boolean isFirstRequest = cached == null;
+                    if (covers(cached, needed)) {
+                        return Uni.createFrom().item(cached);
+                    }
+                    return extendSearch(normalized, key, needed,
+                            page == 0 ? Priority.FIRST_PAGE : Priority.DEEP_PAGE)
+                            .onFailure(YoutubeQuotaExceededException.class).recoverWithUni(e ->
+                            // Serve what we have, if anything. The search could have been extended before the
+                            // quota ended.
+                            searchCache.getMeta(key)
+                                    .onItem().ifNull().failWith(e)
+                                    .invoke(() -> log.warnf("Youtube quota exhausted, serving the cached results of `%s`",
+                                            normalized)));
+                })
+                .chain(cached -> {
+                    // The user is nearing the end of the cached results: fetch the next page
+                    // before it is asked for
+                    if (cached.nextYoutubePageToken() != null
+                            && pageEnd >= searchConfig.prefetch().threshold() * cached.size()) {
+                        schedulePrefetch(normalized, key, cached.size());
+                    }
 
-        // Check the youtube query limit
-        final var currentNumberOfItems = cached != null ? cached.getFound().size() : 0;
-        if (pageEnd > currentNumberOfItems
-                && (pageEnd - currentNumberOfItems) > searchConfig.queriesAllowedPerRequest()
-                        * searchConfig.pageSize()) {
-            // TODO: change in a application exception
-            throw new BadRequestException(
-                    "Page would require too many youtube requests. Ask for a nearer page first");
-        }
+                    return searchCache.getItems(key, Integer.min(pageStart, cached.size()),
+                            Integer.min(pageEnd, cached.size()))
+                            .map(pageItems -> Page.<SearchedSongQueryDto>builder()
+                                    .items(pageItems)
+                                    .pageInfo(PageInfo.builder()
+                                            .totalItems(cached.totalResults())
+                                            .items(pageItems.size())
+                                            .number(page)
+                                            .next(pageEnd >= cached.totalResults() ? null
+                                                    : pageNumberToPageToken(page + 1))
+                                            .prev(page == 0 ? null : pageNumberToPageToken(page - 1))
+                                            .build())
+                                    .build());
+                });
+    }
+
+    /**
+     * Check if a cached search contains all the items up to a given one
+     */
+    private static boolean covers(final CachedYoutubeSearchMeta cached, final int pageEnd) {
+        return cached != null && (pageEnd <= cached.size() || cached.nextYoutubePageToken() == null);
+    }
+
+    /**
+     * Extend a cached search until it covers the given number of items.
+     * 
+     * Only one request for each query is sent to youtube at a time: concurrent
+     * requests on this node wait on the same call, while requests on other nodes
+     * wait for the lock on the query to be released and then read the result from
+     * redis.
+     */
+    private Uni<CachedYoutubeSearchMeta> extendSearch(final String query, final String key, final int pageEnd,
+            final Priority priority) {
+        return Uni.createFrom().deferred(() -> {
+            final CompletableFuture<CachedYoutubeSearchMeta> flight = new CompletableFuture<>();
+            final CompletableFuture<CachedYoutubeSearchMeta> running = inFlightSearches.putIfAbsent(key, flight);
+
+            if (running != null) {
+                log.debugf("Waiting for a running search of `%s`", query);
+                return Uni.createFrom().completionStage(running)
+                        // The running search could have had a lower priority, or have been abandoned: try
+                        // on our own
+                        .onFailure(e -> e instanceof YoutubeQuotaExceededException
+                                || e instanceof CancellationException)
+                        .recoverWithNull();
+            }
+
+            return extendSearchLocked(query, key, pageEnd, priority)
+                    .onItemOrFailure().invoke((extended, failure) -> {
+                        inFlightSearches.remove(key, flight);
+                        if (failure != null) {
+                            flight.completeExceptionally(failure);
+                        } else {
+                            flight.complete(extended);
+                        }
+                    })
+                    .onCancellation().invoke(() -> {
+                        inFlightSearches.remove(key, flight);
+                        flight.cancel(false);
+                    });
+        }).chain(extended ->
+        // The running search could have stopped before the page we need
+        covers(extended, pageEnd)
+                ? Uni.createFrom().item(extended)
+                : extendSearch(query, key, pageEnd, priority));
+    }
+
+    /**
+     * Extend a cached search while holding the cluster wide lock on the query
+     */
+    private Uni<CachedYoutubeSearchMeta> extendSearchLocked(final String query, final String key,
+            final int pageEnd, final Priority priority) {
+        final String lockKey = key + ":lock";
+        final String lockToken = UUID.randomUUID().toString();
+        final Instant deadline = Instant.now().plus(searchConfig.singleFlight().lockTimeout());
+
+        return waitForLock(query, key, pageEnd, priority, lockKey, lockToken, deadline);
+    }
 
-        // Start the search if not done before
-        if (cached == null) {
-            log.debugf("Starting a new search for `%s`", query);
-            final var firstPage = youtubeApiVideosClient.getSearchByKeywords(searchConfig.pageSize(), query);
+    private Uni<CachedYoutubeSearchMeta> waitForLock(final String query, final String key, final int pageEnd,
+            final Priority priority, final String lockKey, final String lockToken, final Instant deadline) {
+        final SingleFlightConfig config = searchConfig.singleFlight();
 
-            cached = new CachedYoutubeSearch(
-                    firstPage.getItems().stream().filter(YoutubeSearchResultDto::isVideo).map(songMapper::toSearchedDto)
-                            .collect(Collectors.toCollection(() -> new ArrayList<>(searchConfig.pageSize()))),
-                    firstPage.getPageInfo().getTotalResults(),
-                    firstPage.getNextPageToken());
+        return tryLock(lockKey, lockToken, config.lockTimeout()).chain(locked -> {
+            if (locked) {
+                return extendSearchUnlocked(query, key, pageEnd, priority)
+                        .eventually(() -> unlock(lockKey, lockToken));
+            }
 
-            shouldSaveAtTheEnd = true;
+            // Someone else is searching: check if it already did our work
+            return searchCache.getFreshMeta(key).chain(cached -> {
+                if (covers(cached, pageEnd)) {
+                    return Uni.createFrom().item(cached);
+                }
+                if (Instant.now().isAfter(deadline)) {
+                    // The holder is taking too long, or died. Search without the lock.
+                    log.warnf("Timed out waiting for the search lock on `%s`", query);
+                    return extendSearchUnlocked(query, key, pageEnd, priority);
+                }
+                return Uni.createFrom().voidItem()
+                        .onItem().delayIt().by(config.pollInterval())
+                        .chain(() -> waitForLock(query, key, pageEnd, priority, lockKey, lockToken, deadline));
+            });
+        });
+    }
+
+    /**
+     * The results of a search obtained from youtube, not yet saved
+     */
+    private static final class SearchProgress {
+        /** Number of results already saved */
+        private final int alreadyFound;
+        /** The new results */
+        private final List<SearchedSongQueryDto> found = new ArrayList<>();
+        private int totalResults;
+        private String nextPageToken;
+
+        SearchProgress(final CachedYoutubeSearchMeta previous) {
+            this.alreadyFound = previous != null ? previous.size() : 0;
+            this.totalResults = previous != null ? previous.totalResults() : 0;
+            this.nextPageToken = previous != null ? previous.nextYoutubePageToken() : null;
         }
 
-        // Call the youtube api until the page is covered or the results end
-        while (pageEnd > cached.getFound().size() && cached.getNextYoutubePageToken() != null) {
-            log.debugf("Requesting a new page for `%s`", query);
-            final var nextPage = youtubeApiVideosClient.getSearchPage(searchConfig.pageSize(), query,
-                    cached.getNextYoutubePageToken());
+        int size() {
+            return alreadyFound + found.size();
+        }
 
-            cached.getFound().addAll(nextPage.getItems().stream().filter(YoutubeSearchResultDto::isVideo)
-                    .map(songMapper::toSearchedDto).toList());
-            cached.setNextYoutubePageToken(nextPage.getNextPageToken());
+        CachedYoutubeSearchMeta meta() {
+            return new CachedYoutubeSearchMeta(size(), totalResults, nextPageToken);
+        }
+    }
 
-            shouldSaveAtTheEnd = true;
+    private void addPage(final SearchProgress progress, final YoutubePaginatedDto<YoutubeSearchResultDto> page) {
+        page.getItems().stream().filter(YoutubeSearchResultDto::isVideo).map(songMapper::toSearchedDto)
+                .forEach(progress.found::add);
+        progress.nextPageToken = page.getNextPageToken();
+    }
+
+    /**
+     * Resolve the videos of a page of results, so they can be added to a queue
+     * without asking youtube
+     */
+    private Uni<Void> enrichPage(final YoutubePaginatedDto<YoutubeSearchResultDto> page, final Priority priority) {
+        if (!videosConfig.enrichSearches()) {
+            return Uni.createFrom().voidItem();
         }
+        return videoResolver.enrich(page.getItems().stream().filter(YoutubeSearchResultDto::isVideo)
+                .map(result -> result.getId().getVideoId()).distinct().toList(), priority);
+    }
+
+    /**
+     * Call the youtube api until the search covers the given number of items,
+     * then save the new results
+     * 
+     * If the quota runs out, the results obtained until then are saved.
+     */
+    private Uni<CachedYoutubeSearchMeta> extendSearchUnlocked(final String query, final String key,
+            final int pageEnd, final Priority priority) {
+        // Read again, as someone could have extended the search while we waited
+        return searchCache.getFreshMeta(key).chain(previous -> {
+            if (covers(previous, pageEnd)) {
+                return Uni.createFrom().item(previous);
+            }
+
+            final SearchProgress progress = new SearchProgress(previous);
+
+            // Start the search if not done before
+            final Uni<Void> started = previous != null
+                    ? Uni.createFrom().voidItem()
+                    : quotaManager.acquire(Operation.SEARCH, priority)
+                            .chain(() -> {
+                                log.debugf("Starting a new search for `%s`", query);
+                                return youtubeApiMetrics.time("getSearchByKeywords",
+                                        () -> youtubeApiVideosClient.getSearchByKeywords(searchConfig.pageSize(),
+                                                query));
+                            })
+                            .invoke(firstPage -> {
+                                addPage(progress, firstPage);
+                                progress.totalResults = firstPage.getPageInfo().getTotalResults();
+                            })
+                            .call(firstPage -> enrichPage(firstPage, priority))
+                            .replaceWithVoid();
 
-        // Cache the search
-        if (shouldSaveAtTheEnd) {
-            redisDataSource.set(key, cached,
-                    isFirstRequest
-                            // First request, set and set the expiration
-                            ? new SetArgs().nx().ex(searchConfig.cacheExpiration())
-                            // Not first request, just set and keep the expiration
-                            : new SetArgs().xx().keepttl());
+            return started
+                    .chain(() -> fetchPages(query, pageEnd, priority, progress))
+                    .chain(quotaExceeded -> {
+                        final CachedYoutubeSearchMeta extended = progress.meta();
 
+                        // Cache the search
+                        final Uni<Boolean> saved;
+                        if (previous == null) {
+                            saved = searchCache.create(key, progress.found, extended,
+                                    searchConfig.cacheExpiration()).replaceWith(true);
+                        } else if (!extended.equals(previous)) {
+                            saved = searchCache.append(key, previous, progress.found, extended);
+                        } else {
+                            saved = Uni.createFrom().item(true);
+                        }
+
+                        return saved.chain(wasSaved -> {
+                            if (quotaExceeded != null) {
+                                return Uni.createFrom().failure(quotaExceeded);
+                            }
+                            if (!wasSaved) {
+                                // Someone else extended it in the meantime, use theirs
+                                return searchCache.getFreshMeta(key);
+                            }
+                            return Uni.createFrom().item(extended);
+                        });
+                    });
+        });
+    }
+
+    /**
+     * Call the youtube api until the page is covered or the results end
+     * 
+     * @return The quota exception that stopped the search, if any
+     */
+    private Uni<YoutubeQuotaExceededException> fetchPages(final String query, final int pageEnd,
+            final Priority priority, final SearchProgress progress) {
+        if (pageEnd <= progress.size() || progress.nextPageToken == null) {
+            return Uni.createFrom().nullItem();
         }
+        return quotaManager.acquire(Operation.SEARCH, priority)
+                .chain(() -> {
+                    log.debugf("Requesting a new page for `%s`", query);
+                    return youtubeApiMetrics.time("getSearchPage",
+                            () -> youtubeApiVideosClient.getSearchPage(searchConfig.pageSize(), query,
+                                    progress.nextPageToken));
+                })
+                .invoke(nextPage -> addPage(progress, nextPage))
+                .call(nextPage -> enrichPage(nextPage, priority))
+                .chain(() -> fetchPages(query, pageEnd, priority, progress))
+                .onFailure(YoutubeQuotaExceededException.class)
+                .recoverWithItem(e -> (YoutubeQuotaExceededException) e);
+    }
 
-        final var pageItems = cached.getFound().subList(Integer.min(pageStart, cached.getFound().size()),
-                Integer.min(pageEnd, cached.getFound().size()));
+    /**
+     * Extend a cached search by one youtube page in the background
+     * 
+     * @param cachedItems The number of items currently cached
+     */
+    private void schedulePrefetch(final String query, final String key, final int cachedItems) {
+        if (!searchConfig.prefetch().enabled() || inFlightSearches.containsKey(key)) {
+            // Disabled, or already being extended
+            return;
+        }
+        tryTakePrefetchBudget()
+                .chain(allowed -> {
+                    if (!allowed) {
+                        log.debugf("Prefetch budget exhausted, not prefetching `%s`", query);
+                        return Uni.createFrom().voidItem();
+                    }
+                    log.debugf("Prefetching the next page of `%s`", query);
+                    return extendSearch(query, key, cachedItems + 1, Priority.BACKGROUND).replaceWithVoid();
+                })
+                .subscribe().with(
+                        ignored -> {
+                        },
+                        failure -> {
+                            if (failure instanceof YoutubeQuotaExceededException) {
+                                log.debugf("Youtube quota exhausted, not prefetching `%s`", query);
+                            } else {
+                                log.warnf(failure, "Failed to prefetch the next page of `%s`", query);
+                            }
+                        });
+    }
+
+    /**
+     * Take one prefetch from the cluster wide budget of the current window
+     * 
+     * @return If the budget allowed it
+     */
+    private Uni<Boolean> tryTakePrefetchBudget() {
+        final PrefetchConfig config = searchConfig.prefetch();
+        final long window = Instant.now().toEpochMilli() / config.budgetWindow().toMillis();
+        final String budgetKey = REDIS_NAMESPACE + ":prefetch-budget:" + window;
+
+        return counters.incr(budgetKey)
+                .call(used -> used == 1
+                        // First of the window: make the counter disappear with it
+                        ? redis.key().pexpire(budgetKey, config.budgetWindow())
+                        : Uni.createFrom().voidItem())
+                .map(used -> used <= config.budget());
+    }
 
-        return Page.<SearchedSongQueryDto>builder()
-                .items(pageItems)
-                .pageInfo(PageInfo.builder()
-                        .totalItems(cached.getTotalResults())
-                        .items(pageItems.size())
-                        .number(page)
-                        .next(pageEnd >= cached.getTotalResults() ? null : pageNumberToPageToken(page + 1))
-                        .prev(page == 0 ? null : pageNumberToPageToken(page - 1))
-                        .build())
-                .build();
+    private Uni<Boolean> tryLock(final String lockKey, final String lockToken, final Duration timeout) {
+        return redis.execute("SET", lockKey, lockToken, "NX", "PX", Long.toString(timeout.toMillis()))
+                .map(Objects::nonNull);
     }
 
+    private Uni<Void> unlock(final String lockKey, final String lockToken) {
+        // Delete the lock only if still ours, as it could have expired and been taken
+        return redis.execute("EVAL", UNLOCK_SCRIPT, "1", lockKey, lockToken).replaceWithVoid();
+    }
+
+    private static final String UNLOCK_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0""";
+
     private String pageNumberToPageToken(final int pageNumber) {
         return Integer.toString(pageNumber, 16);
     }
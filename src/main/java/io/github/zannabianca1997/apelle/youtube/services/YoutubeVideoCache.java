@@ -0,0 +1,87 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.youtube.configs.VideosConfig;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.value.ReactiveValueCommands;
+import io.quarkus.redis.datasource.value.SetArgs;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.NonNull;
+
+/**
+ * Cache of the data of youtube videos.
+ *
+ * Videos are stored in redis by id, so the nodes share the lookups made by
+ * each other.
+ */
+@ApplicationScoped
+public class YoutubeVideoCache {
+    private final Logger log;
+    private final VideosConfig config;
+
+    private final ReactiveRedisDataSource redis;
+    private final ReactiveValueCommands<String, YoutubeVideoDataDto> videos;
+
+    public YoutubeVideoCache(final ReactiveRedisDataSource redis, final VideosConfig config, final Logger log) {
+        this.log = log;
+        this.config = config;
+        this.redis = redis;
+        this.videos = redis.value(YoutubeVideoDataDto.class);
+    }
+
+    /**
+     * Read the cached videos
+     *
+     * @param videoIds The ids of the videos
+     * @return The videos found in the cache, by id
+     */
+    public Uni<Map<String, YoutubeVideoDataDto>> getAll(final @NonNull Collection<String> videoIds) {
+        if (videoIds.isEmpty()) {
+            return Uni.createFrom().item(Map.of());
+        }
+        final List<String> ids = List.copyOf(videoIds);
+        return videos.mget(ids.stream().map(YoutubeVideoCache::key).toArray(String[]::new))
+                .map(cached -> {
+                    final Map<String, YoutubeVideoDataDto> found = new HashMap<>();
+                    for (final String videoId : ids) {
+                        final YoutubeVideoDataDto video = cached.get(key(videoId));
+                        if (video != null) {
+                            found.put(videoId, video);
+                        }
+                    }
+                    log.debugf("Found %d of %d videos in the cache", found.size(), ids.size());
+                    return found;
+                });
+    }
+
+    /**
+     * Save videos in the cache
+     *
+     * @param found The videos to save
+     */
+    public Uni<Void> putAll(final @NonNull Collection<YoutubeVideoDataDto> found) {
+        if (found.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return redis.withTransaction(tx -> {
+            Uni<Void> commands = Uni.createFrom().voidItem();
+            for (final YoutubeVideoDataDto video : found) {
+                commands = commands.chain(() -> tx.value(YoutubeVideoDataDto.class).set(key(video.getId()), video,
+                        new SetArgs().px(config.cacheExpiration())));
+            }
+            return commands;
+        }).replaceWithVoid();
+    }
+
+    static String key(final String videoId) {
+        return YoutubeVideoCache.class.getName() + ":video:" + videoId;
+    }
+}
@@ -0,0 +1,294 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiMetrics;
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeReactiveApiClient;
+import io.github.zannabianca1997.apelle.youtube.configs.VideosConfig;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
+import io.github.zannabianca1997.apelle.youtube.exceptions.BadYoutubeApiResponseException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeQuotaExceededException;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeVideoNotFoundException;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Operation;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Priority;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.NonNull;
+
+/**
+ * Resolve video data, batching concurrent lookups.
+ *
+ * The youtube `/videos` endpoint accepts up to 50 ids for the same quota cost
+ * as one. Lookups arriving within a short window are collected and sent in a
+ * single request, then each caller receives its own video.
+ *
+ * Videos are looked up in {@link YoutubeVideoCache} first, and only the missing
+ * ones are asked to youtube. Searches fill the cache in advance through
+ * {@link #enrich(Collection, Priority)}, so adding a found song to a queue
+ * usually does not contact youtube at all.
+ */
+@ApplicationScoped
+public class YoutubeVideoResolver {
+    private final YoutubeReactiveApiClient youtubeApiClient;
+    private final YoutubeApiMetrics youtubeApiMetrics;
+    private final VideosConfig videosConfig;
+    private final YoutubeQuotaManager quotaManager;
+    private final YoutubeVideoCache videoCache;
+    private final Vertx vertx;
+    private final Logger log;
+
+    /**
+     * Lookups that will be sent to youtube in the same request
+     */
+    private static final class Batch {
+        private final Map<String, CompletableFuture<YoutubeVideoDataDto>> lookups = new LinkedHashMap<>();
+        private boolean sent = false;
+    }
+
+    /**
+     * The batch collecting new lookups.
+     *
+     * Guarded by {@code this}, as are the batch contents until it is sent.
+     */
+    private Batch pending;
+
+    public YoutubeVideoResolver(
+            @RestClient final YoutubeReactiveApiClient youtubeApiClient,
+            final YoutubeApiMetrics youtubeApiMetrics,
+            final VideosConfig videosConfig,
+            final YoutubeQuotaManager quotaManager,
+            final YoutubeVideoCache videoCache,
+            final Vertx vertx,
+            final Logger log) {
+        this.youtubeApiClient = youtubeApiClient;
+        this.youtubeApiMetrics = youtubeApiMetrics;
+        this.videosConfig = videosConfig;
+        this.quotaManager = quotaManager;
+        this.videoCache = videoCache;
+        this.vertx = vertx;
+        this.log = log;
+        this.pending = new Batch();
+    }
+
+    /**
+     * Obtain the data of a video, waiting for the batch to complete
+     *
+     * @param videoId The id of the video
+     * @return The video data
+     * @throws BadYoutubeApiResponseException An error happened while talking to
+     *                                        youtube
+     * @throws YoutubeVideoNotFoundException  The video does not exist
+     */
+    public YoutubeVideoDataDto get(final @NonNull String videoId)
+            throws BadYoutubeApiResponseException, YoutubeVideoNotFoundException {
+        return await(resolve(videoId));
+    }
+
+    private YoutubeVideoDataDto await(final CompletableFuture<YoutubeVideoDataDto> lookup)
+            throws BadYoutubeApiResponseException, YoutubeVideoNotFoundException {
+        try {
+            return lookup.get(videosConfig.timeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            throw new BadYoutubeApiResponseException("Timed out while waiting for youtube", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BadYoutubeApiResponseException("Interrupted while waiting for youtube", e);
+        } catch (final ExecutionException e) {
+            switch (e.getCause()) {
+                case final YoutubeVideoNotFoundException notFound:
+                    throw new YoutubeVideoNotFoundException(notFound.getVideoId());
+                case final YoutubeQuotaExceededException quotaExceeded:
+                    throw new YoutubeQuotaExceededException(quotaExceeded.getMessage(), quotaExceeded);
+                case final BadYoutubeApiResponseException badResponse:
+                    throw new BadYoutubeApiResponseException(badResponse.getMessage(), badResponse);
+                case final RuntimeException runtime:
+                    throw runtime;
+                default:
+                    throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Obtain the data of many videos, waiting for all the batches to complete
+     *
+     * @param videoIds The ids of the videos
+     * @return The video data, by id. Videos that do not exist are missing
+     * @throws BadYoutubeApiResponseException An error happened while talking to
+     *                                        youtube
+     */
+    public Map<String, YoutubeVideoDataDto> getAll(final @NonNull Collection<String> videoIds)
+            throws BadYoutubeApiResponseException {
+        // Start all the lookups before waiting, so they share the batches
+        final Map<String, CompletableFuture<YoutubeVideoDataDto>> lookups = new LinkedHashMap<>();
+        for (final String videoId : videoIds) {
+            lookups.computeIfAbsent(videoId, this::resolve);
+        }
+
+        final Map<String, YoutubeVideoDataDto> found = new LinkedHashMap<>();
+        for (final var lookup : lookups.entrySet()) {
+            try {
+                found.put(lookup.getKey(), await(lookup.getValue()));
+            } catch (final YoutubeVideoNotFoundException e) {
+                // Missing videos are reported by omission
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Obtain the data of a video
+     *
+     * @param videoId The id of the video
+     * @return A future completed with the video data, or failed with
+     *         {@link YoutubeVideoNotFoundException} or
+     *         {@link BadYoutubeApiResponseException}
+     */
+    public CompletableFuture<YoutubeVideoDataDto> resolve(final @NonNull String videoId) {
+        final CompletableFuture<YoutubeVideoDataDto> future;
+        Batch full = null;
+
+        synchronized (this) {
+            final CompletableFuture<YoutubeVideoDataDto> already = pending.lookups.get(videoId);
+            if (already != null) {
+                // Someone else is waiting on the same video
+                return already;
+            }
+
+            future = new CompletableFuture<>();
+            pending.lookups.put(videoId, future);
+
+            if (pending.lookups.size() == 1) {
+                // First of the batch: start the window. The timer runs on the event loop,
+                // so it fires even if all the workers are waiting for their lookups
+                final Batch batch = pending;
+                vertx.setTimer(Math.max(1, videosConfig.batchWindow().toMillis()), id -> flush(batch));
+            }
+            if (pending.lookups.size() >= videosConfig.batchSize()) {
+                // The batch is full, no point in waiting more
+                full = pending;
+                pending = new Batch();
+            }
+        }
+
+        if (full != null) {
+            // Sending does not block, so it does not need another thread
+            flush(full);
+        }
+
+        return future;
+    }
+
+    private void flush(final Batch batch) {
+        synchronized (this) {
+            if (batch.sent) {
+                // Already sent when it filled up
+                return;
+            }
+            batch.sent = true;
+            if (pending == batch) {
+                // Window expired before filling up: new lookups go in a new batch
+                pending = new Batch();
+            }
+        }
+
+        // No thread is held while waiting for redis or youtube
+        // Songs are being added to a queue, the most important use of the quota
+        lookup(batch.lookups.keySet(), Priority.ENQUEUE).subscribe().with(
+                found -> batch.lookups.forEach((videoId, future) -> {
+                    final YoutubeVideoDataDto video = found.get(videoId);
+                    if (video != null) {
+                        future.complete(video);
+                    } else {
+                        future.completeExceptionally(new YoutubeVideoNotFoundException(videoId));
+                    }
+                }),
+                failure -> batch.lookups.values().forEach(future -> future.completeExceptionally(failure)));
+    }
+
+    /**
+     * Resolve the videos found by a search in advance, so they are cached when
+     * added to a queue
+     *
+     * @param videoIds The ids of the found videos, at most a batch
+     * @param priority The priority of the search
+     * @return Completes when the videos are cached. Never fails, as the search
+     *         does not need the videos data.
+     */
+    public Uni<Void> enrich(final @NonNull Collection<String> videoIds, final @NonNull Priority priority) {
+        if (videoIds.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return lookup(videoIds, priority)
+                .invoke(found -> log.debugf("Resolved %d videos in advance", found.size()))
+                .replaceWithVoid()
+                .onFailure().recoverWithUni(failure -> {
+                    if (failure instanceof YoutubeQuotaExceededException) {
+                        log.debugf("Youtube quota exhausted, not resolving %d videos in advance", videoIds.size());
+                    } else {
+                        log.warnf(failure, "Failed to resolve %d videos in advance", videoIds.size());
+                    }
+                    return Uni.createFrom().voidItem();
+                });
+    }
+
+    /**
+     * Obtain the data of at most a batch of videos, from the cache or youtube
+     */
+    private Uni<Map<String, YoutubeVideoDataDto>> lookup(final Collection<String> videoIds,
+            final Priority priority) {
+        return videoCache.getAll(videoIds)
+                .onFailure().recoverWithItem(failure -> {
+                    // The cache is only an optimization
+                    log.warnf(failure, "Failed to read the videos cache");
+                    return Map.of();
+                })
+                .chain(cached -> {
+                    final List<String> missing = videoIds.stream().filter(id -> !cached.containsKey(id)).toList();
+                    if (missing.isEmpty()) {
+                        return Uni.createFrom().item(cached);
+                    }
+
+                    log.debugf("Resolving %d videos in a single request", missing.size());
+                    return fetch(missing, priority)
+                            .call(fetched -> videoCache.putAll(fetched.values())
+                                    .onFailure().invoke(failure -> log.warnf(failure, "Failed to cache %d videos",
+                                            fetched.size()))
+                                    .onFailure().recoverWithNull())
+                            .map(fetched -> {
+                                final Map<String, YoutubeVideoDataDto> found = new HashMap<>(cached);
+                                found.putAll(fetched);
+                                return found;
+                            });
+                });
+    }
+
+    private Uni<Map<String, YoutubeVideoDataDto>> fetch(final Collection<String> videoIds, final Priority priority) {
+        return quotaManager.acquire(Operation.VIDEOS, priority)
+                .chain(() -> youtubeApiMetrics.time("getDataByIds",
+                        () -> youtubeApiClient.getDataByIds(String.join(",", videoIds))))
+                .chain(videos -> {
+                    try {
+                        return Uni.createFrom().item(videos.getItems().stream()
+                                .collect(Collectors.toMap(YoutubeVideoDataDto::getId, Function.identity())));
+                    } catch (final IllegalStateException e) {
+                        return Uni.createFrom().failure(
+                                new BadYoutubeApiResponseException("Multiple videos returned for a single id", e));
+                    }
+                });
+    }
+}
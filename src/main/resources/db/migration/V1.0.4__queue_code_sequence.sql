@@ -0,0 +1,4 @@
+-- Sequence backing the queue codes.
+-- Each value is mapped to a unique code by a keyed permutation, so codes can be
+-- allocated without checking the queue table for collisions.
+CREATE SEQUENCE IF NOT EXISTS queue_code_seq AS BIGINT START WITH 0 MINVALUE 0;
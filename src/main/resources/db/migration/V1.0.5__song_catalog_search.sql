@@ -0,0 +1,25 @@
+-- Local search over the songs already known, so that searches can be answered
+-- without asking the external sources.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Popularity of the songs, used to rank the local results
+ALTER TABLE song
+ADD COLUMN enqueue_count BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN play_count BIGINT NOT NULL DEFAULT 0,
+-- Words of the name, for full text matches
+ADD COLUMN name_search TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', name)) STORED;
+
+-- Songs in the queues were enqueued at least once
+UPDATE song
+SET enqueue_count = queued.count
+FROM (
+        SELECT song_id, COUNT(*) AS count
+        FROM queued_song
+        GROUP BY song_id
+    ) AS queued
+WHERE song.id = queued.song_id;
+
+CREATE INDEX song_name_search_idx ON song USING GIN (name_search);
+
+-- Trigrams of the name, for partial and misspelled matches
+CREATE INDEX song_name_trgm_idx ON song USING GIN (name gin_trgm_ops);
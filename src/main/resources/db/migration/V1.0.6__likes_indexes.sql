@@ -0,0 +1,15 @@
+-- The primary key of the likes leads with `given_at`, so it can't be used to find
+-- the likes of a song or of a user.
+
+-- Likes on a song: the likes count of the queued songs, the deletion of the likes
+-- of a removed song and the cascade from `queued_song`.
+-- The user is included to count the likes of a user without reading the table.
+CREATE INDEX likes_queued_song_ref_idx ON likes (queued_song_ref) INCLUDE (user_id, count);
+
+-- Likes of a user: the likes given in a queue, the oldest likes to remove when
+-- the user runs out of them and the cascade from `apelle_user`.
+CREATE INDEX likes_user_id_idx ON likes (user_id, queued_song_ref) INCLUDE (given_at, count);
+
+-- The primary key of the queued songs leads with the queue, this finds the queues
+-- a song is in, and supports the cascade from `song`.
+CREATE INDEX queued_song_song_id_idx ON queued_song (song_id);
@@ -0,0 +1,136 @@
+package io.github.zannabianca1997.apelle.common.resources;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.jboss.resteasy.reactive.RestResponse.StatusCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.common.exceptions.RecordingNotFoundException;
+import io.github.zannabianca1997.apelle.common.services.RecordingService;
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.transaction.Transactional;
+import jdk.jfr.consumer.RecordingFile;
+
+@QuarkusTest
+@TestHTTPEndpoint(RecordingResource.class)
+@Tag("common")
+class RecordingResourceTest {
+
+    private final RecordingService recordingService;
+
+    public RecordingResourceTest(final RecordingService recordingService) {
+        this.recordingService = recordingService;
+    }
+
+    @BeforeEach
+    @Transactional
+    void createUsers() {
+        ApelleUser.deleteAll();
+        ApelleUser.builder()
+                .name("admin")
+                .password(TestPasswords.hash("admin"))
+                .role(ApelleUserRole.ADMIN)
+                .build().persist();
+        ApelleUser.builder()
+                .name("zanna")
+                .password(TestPasswords.hash("zanna"))
+                .role(ApelleUserRole.USER)
+                .build().persist();
+    }
+
+    @AfterEach
+    void discardRecording() throws IOException {
+        try {
+            Files.deleteIfExists(recordingService.stop());
+        } catch (final RecordingNotFoundException e) {
+            // Already stopped by the test
+        }
+    }
+
+    @Test
+    void shouldBeReservedToAdmins() {
+        given()
+                .auth().basic("zanna", "zanna")
+                .post()
+                .then()
+                .statusCode(StatusCode.FORBIDDEN);
+    }
+
+    @Test
+    void shouldNotStartTwoRecordings() {
+        given()
+                .auth().basic("admin", "admin")
+                .post()
+                .then()
+                .statusCode(StatusCode.CREATED)
+                .body("state", is("RUNNING"));
+        given()
+                .auth().basic("admin", "admin")
+                .post()
+                .then()
+                .statusCode(StatusCode.CONFLICT);
+    }
+
+    @Test
+    void shouldRecordQueueOperations() throws IOException {
+        given()
+                .auth().basic("admin", "admin")
+                .post()
+                .then()
+                .statusCode(StatusCode.CREATED);
+
+        final String queueId = given()
+                .auth().basic("admin", "admin")
+                .basePath("/api/v1/queues")
+                .post()
+                .then()
+                .statusCode(StatusCode.CREATED)
+                .extract().path("id");
+        given()
+                .auth().basic("admin", "admin")
+                .basePath("/api/v1/queues")
+                .post("/i/{queueId}/stop", queueId)
+                .then()
+                .statusCode(StatusCode.NO_CONTENT);
+
+        final byte[] recorded = given()
+                .auth().basic("admin", "admin")
+                .post("/stop")
+                .then()
+                .statusCode(StatusCode.OK)
+                .extract().asByteArray();
+
+        final Path file = Files.createTempFile("recording-test-", ".jfr");
+        try {
+            Files.write(file, recorded);
+            assertTrue(RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName()
+                            .equals("io.github.zannabianca1997.apelle.QueueOperation"))
+                    .anyMatch(event -> event.getString("operation").equals("stop")
+                            && UUID.fromString(event.getString("queueId")).equals(UUID.fromString(queueId))));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // The recording was discarded
+        given()
+                .auth().basic("admin", "admin")
+                .get()
+                .then()
+                .statusCode(StatusCode.NOT_FOUND);
+    }
+}
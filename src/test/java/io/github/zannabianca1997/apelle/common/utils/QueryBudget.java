@@ -0,0 +1,64 @@
+package io.github.zannabianca1997.apelle.common.utils;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+/**
+ * Check that an operation runs at most a given number of SQL statements.
+ *
+ * Statements are counted with the Hibernate statistics, that are global: the
+ * checked operation must not run concurrently with others using the database.
+ */
+public final class QueryBudget {
+    private final Statistics statistics;
+    private final long max;
+
+    private QueryBudget(final SessionFactory sessionFactory, final long max) {
+        this.statistics = sessionFactory.getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+        this.max = max;
+    }
+
+    /**
+     * A budget of statements
+     *
+     * @param sessionFactory The session factory running the statements
+     * @param max            The maximum number of statements
+     * @return The budget
+     */
+    public static QueryBudget atMost(final SessionFactory sessionFactory, final long max) {
+        return new QueryBudget(sessionFactory, max);
+    }
+
+    /**
+     * Run an operation, failing if it exceeds the budget
+     *
+     * @param description What the operation is, for the failure message
+     * @param operation   The operation
+     * @return The result of the operation
+     */
+    public <T> T check(final String description, final ThrowingSupplier<T> operation) throws Throwable {
+        final long before = statistics.getPrepareStatementCount();
+        final T result = operation.get();
+        final long used = statistics.getPrepareStatementCount() - before;
+        assertTrue(used <= max, "%s ran %d statements, over the budget of %d".formatted(description, used, max));
+        return result;
+    }
+
+    /**
+     * Run an operation, failing if it exceeds the budget
+     *
+     * @param description What the operation is, for the failure message
+     * @param operation   The operation
+     */
+    public void check(final String description, final Executable operation) throws Throwable {
+        check(description, () -> {
+            operation.execute();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.zannabianca1997.apelle.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Record the SQL generated by Hibernate.
+ *
+ * Only the statements prepared by the thread running {@link #record(Runnable)}
+ * are recorded, the others pass through untouched.
+ */
+@PersistenceUnitExtension
+@ApplicationScoped
+public class RecordingStatementInspector implements StatementInspector {
+    private final ThreadLocal<List<String>> recording = new ThreadLocal<>();
+
+    /**
+     * Run an operation, recording the statements it prepares
+     *
+     * @param operation The operation
+     * @return The SQL of the statements, in order
+     */
+    public List<String> record(final Runnable operation) {
+        final List<String> recorded = new ArrayList<>();
+        recording.set(recorded);
+        try {
+            operation.run();
+        } finally {
+            recording.remove();
+        }
+        return recorded;
+    }
+
+    @Override
+    public String inspect(final String sql) {
+        final List<String> recorded = recording.get();
+        if (recorded != null) {
+            recorded.add(sql);
+        }
+        return sql;
+    }
+}
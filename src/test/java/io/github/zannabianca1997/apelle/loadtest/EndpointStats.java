@@ -0,0 +1,91 @@
+package io.github.zannabianca1997.apelle.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencies and response statuses collected for each endpoint during a
+ * simulation
+ */
+class EndpointStats {
+    private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Samples of a single endpoint
+     */
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int count = 0;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        synchronized void add(final long latencyNanos, final int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        synchronized long[] sorted() {
+            final long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        synchronized Map<Integer, Integer> statuses() {
+            return new TreeMap<>(statuses);
+        }
+    }
+
+    /**
+     * Record a completed request
+     *
+     * @param endpoint     The endpoint called
+     * @param latencyNanos The time from sending the request to receiving the
+     *                     response
+     * @param status       The status of the response, or {@code 0} if no
+     *                     response was received
+     */
+    void record(final String endpoint, final long latencyNanos, final int status) {
+        endpoints.computeIfAbsent(endpoint, name -> new Samples()).add(latencyNanos, status);
+    }
+
+    /**
+     * Value under which the given fraction of the sorted samples falls
+     */
+    static long percentile(final long[] sorted, final double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    /**
+     * A line with the count and percentiles of the samples, in milliseconds
+     */
+    static String summary(final String name, final long[] sorted) {
+        return "%-24s %8d %10.1f %10.1f %10.1f".formatted(name, sorted.length,
+                percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.99) / 1e6,
+                sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.);
+    }
+
+    static String header() {
+        return "%-24s %8s %10s %10s %10s".formatted("", "count", "p50 ms", "p99 ms", "max ms");
+    }
+
+    /**
+     * A table with the latencies and the statuses of all the endpoints
+     */
+    String report() {
+        final StringBuilder report = new StringBuilder(header());
+        for (final var endpoint : new TreeMap<>(endpoints).entrySet()) {
+            report.append('\n')
+                    .append(summary(endpoint.getKey(), endpoint.getValue().sorted()))
+                    .append("   statuses ").append(endpoint.getValue().statuses());
+        }
+        return report.toString();
+    }
+}
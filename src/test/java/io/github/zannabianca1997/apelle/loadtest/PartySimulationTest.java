@@ -0,0 +1,380 @@
+package io.github.zannabianca1997.apelle.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.RestResponse.StatusCode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.zannabianca1997.apelle.queues.dtos.QueueQueryDto;
+import io.github.zannabianca1997.apelle.queues.dtos.QueuedSongShortQueryDto;
+import io.github.zannabianca1997.apelle.queues.dtos.events.QueueEventDto;
+import io.github.zannabianca1997.apelle.queues.dtos.events.QueueStateEventDto;
+import io.github.zannabianca1997.apelle.queues.dtos.events.QueuedSongsStateEventDto;
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.users.dtos.UserCreateDto;
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiClientMock;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Simulate a party: many users joined to the same queue, all listening to its
+ * events, adding songs and liking them.
+ *
+ * The real endpoints are called over HTTP, with the youtube api replaced by
+ * {@link YoutubeApiClientMock}. The songs are picked from the videos the mock
+ * knows as search results, so they never run out.
+ *
+ * Excluded from the normal test run, run it with {@code ./gradlew loadTest}.
+ * The parameters are read from the {@code apelle.loadtest.*} properties, see
+ * {@link Parameters}.
+ */
+@QuarkusTest
+@Tag("loadtest")
+class PartySimulationTest {
+    /** Operations run one at a time to count their queries */
+    private static final int PROBES = 10;
+    /** Time given to the events of an operation to reach all the listeners */
+    private static final Duration SETTLE = Duration.ofMillis(200);
+
+    private final SessionFactory sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final Logger log;
+
+    @TestHTTPResource("/api/v1")
+    URI apiRoot;
+
+    public PartySimulationTest(final SessionFactory sessionFactory, final ObjectMapper objectMapper,
+            final Logger log) {
+        this.sessionFactory = sessionFactory;
+        this.objectMapper = objectMapper;
+        this.log = log;
+    }
+
+    /**
+     * Parameters of the simulation
+     *
+     * @param users       Number of users joining the party
+     * @param duration    Duration of the simulation
+     * @param enqueueRate Songs added each second, by the whole party
+     * @param likeRate    Likes given each second, by the whole party
+     * @param catalog     Number of different songs the users pick from
+     */
+    record Parameters(int users, Duration duration, double enqueueRate, double likeRate, int catalog) {
+        static Parameters fromSystemProperties() {
+            return new Parameters(
+                    Integer.getInteger("apelle.loadtest.users", 20),
+                    Duration.parse(System.getProperty("apelle.loadtest.duration", "PT30S")),
+                    Double.parseDouble(System.getProperty("apelle.loadtest.enqueue-rate", "2")),
+                    Double.parseDouble(System.getProperty("apelle.loadtest.like-rate", "10")),
+                    Integer.getInteger("apelle.loadtest.catalog", 1000));
+        }
+    }
+
+    /**
+     * A guest of the party
+     */
+    private record Guest(String name, String authorization) {
+        Guest(final String name) {
+            this(name, "Basic " + Base64.getEncoder()
+                    .encodeToString((name + ":" + name).getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private HttpClient client;
+    private final EndpointStats stats = new EndpointStats();
+
+    /**
+     * Call an endpoint, recording its latency
+     */
+    private CompletableFuture<HttpResponse<String>> call(final String endpoint, final Guest guest,
+            final String method, final String path, final Object body) {
+        final BodyPublisher publisher;
+        try {
+            publisher = body != null ? BodyPublishers.ofString(objectMapper.writeValueAsString(body))
+                    : BodyPublishers.noBody();
+        } catch (final JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+        final HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(apiRoot + path))
+                .method(method, publisher)
+                .header("Content-Type", "application/json");
+        if (guest != null) {
+            request.header("Authorization", guest.authorization());
+        }
+
+        final long start = System.nanoTime();
+        return client.sendAsync(request.build(), BodyHandlers.ofString())
+                .whenComplete((response, error) -> stats.record(endpoint, System.nanoTime() - start,
+                        response != null ? response.statusCode() : 0));
+    }
+
+    private HttpResponse<String> callAndWait(final String endpoint, final Guest guest, final String method,
+            final String path, final Object body) {
+        return call(endpoint, guest, method, path, body).join();
+    }
+
+    /**
+     * The event stream of a guest.
+     *
+     * Remembers when each song was first seen in the queue.
+     */
+    private final class EventStream implements Flow.Subscriber<String> {
+        private final Map<UUID, Long> firstSeen = new ConcurrentHashMap<>();
+        private volatile Flow.Subscription subscription;
+        private volatile int events = 0;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(final String line) {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            final long now = System.nanoTime();
+            final QueueEventDto event;
+            try {
+                event = objectMapper.readValue(line.substring("data:".length()), QueueEventDto.class);
+            } catch (final JsonProcessingException e) {
+                log.errorf(e, "Unreadable event `%s`", line);
+                return;
+            }
+            events++;
+
+            final List<QueuedSongShortQueryDto> songs = switch (event) {
+                case final QueueStateEventDto state -> state.getQueue().getQueuedSongs();
+                case final QueuedSongsStateEventDto state -> state.getQueuedSongs();
+                default -> List.of();
+            };
+            for (final QueuedSongShortQueryDto song : songs) {
+                firstSeen.putIfAbsent(song.getId(), now);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            log.warnf(throwable, "Event stream interrupted");
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void close() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    private EventStream listen(final Guest guest, final UUID queueId) {
+        final EventStream stream = new EventStream();
+        final long start = System.nanoTime();
+        client.sendAsync(HttpRequest.newBuilder(URI.create(apiRoot + "/queues/i/" + queueId + "/events"))
+                .header("Accept", "text/event-stream")
+                .header("Authorization", guest.authorization())
+                .GET().build(), BodyHandlers.fromLineSubscriber(stream))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        stats.record("GET events", System.nanoTime() - start, 0);
+                    }
+                });
+        return stream;
+    }
+
+    private YoutubeSongAddDto randomSong(final Parameters parameters) {
+        return YoutubeSongAddDto.builder()
+                .videoId("search%06d".formatted(ThreadLocalRandom.current().nextInt(parameters.catalog())))
+                .build();
+    }
+
+    private <T> T randomOf(final List<T> items) {
+        return items.get(ThreadLocalRandom.current().nextInt(items.size()));
+    }
+
+    /**
+     * Run an operation a few times, one at a time, and count the statements
+     * prepared for each one.
+     *
+     * The count includes the queries needed to send the events to all the
+     * listeners.
+     */
+    private double queriesPerOperation(final Runnable operation) throws InterruptedException {
+        final Statistics statistics = sessionFactory.getStatistics();
+        long total = 0;
+        for (int i = 0; i < PROBES; i++) {
+            final long before = statistics.getPrepareStatementCount();
+            operation.run();
+            Thread.sleep(SETTLE);
+            total += statistics.getPrepareStatementCount() - before;
+        }
+        return (double) total / PROBES;
+    }
+
+    @Test
+    void simulateParty() throws InterruptedException {
+        final Parameters parameters = Parameters.fromSystemProperties();
+        log.infof("Simulating a party with %s", parameters);
+
+        YoutubeApiClientMock.install();
+        QuarkusTransaction.requiringNew().run(() -> {
+            ApelleUser.deleteAll();
+            Queue.deleteAll();
+            Song.deleteAll();
+        });
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // Guests arrive
+        final List<Guest> guests = new ArrayList<>();
+        for (int i = 0; i < parameters.users(); i++) {
+            final Guest guest = new Guest("party-guest-%d".formatted(i));
+            callAndWait("POST users", null, "POST", "/users",
+                    UserCreateDto.builder().name(guest.name()).password(guest.name()).build());
+            guests.add(guest);
+        }
+        final Guest host = guests.get(0);
+        final UUID queueId = parse(callAndWait("POST queues", host, "POST", "/queues", null), QueueQueryDto.class)
+                .getId();
+        final String queuePath = "/queues/i/" + queueId;
+
+        final List<EventStream> streams = new ArrayList<>();
+        for (final Guest guest : guests) {
+            callAndWait("GET queue", guest, "GET", queuePath, null);
+            streams.add(listen(guest, queueId));
+        }
+
+        // Songs added, with the moment the request was sent
+        final Map<UUID, Long> enqueuedAt = new ConcurrentHashMap<>();
+        final List<UUID> enqueued = new CopyOnWriteArrayList<>();
+        final Supplier<CompletableFuture<Void>> enqueue = () -> {
+            final long sent = System.nanoTime();
+            return call("POST queue", randomOf(guests), "POST", queuePath + "/queue", randomSong(parameters))
+                    .thenAccept(response -> {
+                        if (response.statusCode() == StatusCode.CREATED) {
+                            final UUID songId = parse(response, QueuedSongShortQueryDto.class).getId();
+                            enqueuedAt.put(songId, sent);
+                            enqueued.add(songId);
+                        }
+                    });
+        };
+        final Runnable like = () -> {
+            if (!enqueued.isEmpty()) {
+                call("POST likes", randomOf(guests), "POST",
+                        queuePath + "/queue/" + randomOf(enqueued) + "/likes", null);
+            }
+        };
+
+        // Queries of each operation, with all the guests listening
+        final double enqueueQueries = queriesPerOperation(() -> enqueue.get().join());
+        final double likeQueries = queriesPerOperation(() -> call("POST likes", randomOf(guests), "POST",
+                queuePath + "/queue/" + randomOf(enqueued) + "/likes", null).join());
+        final double getQueries = queriesPerOperation(
+                () -> callAndWait("GET queue", randomOf(guests), "GET", queuePath, null));
+
+        // The party
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        if (parameters.enqueueRate() > 0) {
+            scheduler.scheduleAtFixedRate(enqueue::get, 0, (long) (1e9 / parameters.enqueueRate()),
+                    TimeUnit.NANOSECONDS);
+        }
+        if (parameters.likeRate() > 0) {
+            scheduler.scheduleAtFixedRate(like, 0, (long) (1e9 / parameters.likeRate()), TimeUnit.NANOSECONDS);
+        }
+        Thread.sleep(parameters.duration());
+        scheduler.shutdownNow();
+        // Let the last requests and events arrive
+        Thread.sleep(SETTLE.multipliedBy(10));
+
+        // Time from sending a song to each listener seeing it
+        final List<Long> lags = new ArrayList<>();
+        int missed = 0;
+        for (final EventStream stream : streams) {
+            for (final var song : enqueuedAt.entrySet()) {
+                final Long seen = stream.firstSeen.get(song.getKey());
+                if (seen != null) {
+                    lags.add(seen - song.getValue());
+                } else {
+                    missed++;
+                }
+            }
+            stream.close();
+        }
+        final long[] sortedLags = lags.stream().mapToLong(Long::longValue).sorted().toArray();
+
+        log.infof("""
+                Party of %d guests, %d songs added in %s
+
+                Endpoints
+                %s
+
+                Event delivery, from sending the song to each listener seeing it
+                %s
+                %s
+                %d deliveries missing
+
+                Statements prepared per operation, including the events sent to %d listeners
+                  POST queue  %6.1f
+                  POST likes  %6.1f
+                  GET queue   %6.1f""",
+                parameters.users(), enqueuedAt.size(), parameters.duration(),
+                stats.report(),
+                EndpointStats.header(), EndpointStats.summary("enqueue event", sortedLags), missed,
+                streams.size(), enqueueQueries, likeQueries, getQueries);
+
+        for (final EventStream stream : streams) {
+            // At least the initial state
+            assertTrue(stream.events > 0, "A guest did not receive any event");
+        }
+    }
+
+    private <T> T parse(final HttpResponse<String> response, final Class<T> type) {
+        try {
+            return objectMapper.readValue(response.body(), type);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Unexpected response " + response.statusCode() + ": " + response.body(),
+                    e);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package io.github.zannabianca1997.apelle.queues.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+@Tag("queue")
+class LikesTest {
+
+    @Test
+    void shouldDeleteLikesNotYetFlushed() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            Queue.deleteAll();
+            Song.deleteAll();
+            ApelleUser.delete("name", "likes");
+        });
+
+        final long deleted = QuarkusTransaction.requiringNew().call(() -> {
+            final ApelleUser user = ApelleUser.builder()
+                    .name("likes")
+                    .password(TestPasswords.hash("likes"))
+                    .role(ApelleUserRole.USER)
+                    .build();
+            user.persist();
+            final Queue queue = Queue.builder()
+                    .code("likes")
+                    .config(QueueConfig.findDefault())
+                    .build();
+            queue.persist();
+            final YoutubeSong song = YoutubeSong.builder()
+                    .name("Liked song")
+                    .duration(Duration.ofMinutes(3))
+                    .videoId("likedsong00")
+                    .build();
+            song.persist();
+            final QueuedSong queuedSong = QueuedSong.builder()
+                    .song(song)
+                    .queue(queue)
+                    .queuedAt(Instant.now())
+                    .build();
+            queuedSong.persist();
+
+            // The like is still pending when the likes are deleted
+            Likes.builder().user(user).song(queuedSong).givenAt(Instant.now()).count((short) 1).build().persist();
+            final long count = Likes.deleteReferringTo(queuedSong);
+            queuedSong.delete();
+            return count;
+        });
+
+        // The like was inserted before the delete, and the queued song could be removed
+        assertEquals(1, deleted);
+    }
+}
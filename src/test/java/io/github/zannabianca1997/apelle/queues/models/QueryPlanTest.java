@@ -0,0 +1,301 @@
+package io.github.zannabianca1997.apelle.queues.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.zannabianca1997.apelle.common.utils.RecordingStatementInspector;
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Check that the hot queries on the likes and the queued songs are served by
+ * an index.
+ *
+ * The real model methods are called on a seeded dataset, and the SQL Hibernate
+ * generates for them is explained with sequential scans discouraged. Every
+ * scan of a guarded table must then be an index scan looking up the leading
+ * column of one of the expected indexes: walking a whole index, like the
+ * primary key of the likes that leads with {@code given_at}, fails as a
+ * sequential scan would.
+ */
+@QuarkusTest
+@Tag("queue")
+class QueryPlanTest {
+    private static final int QUEUES = 10;
+    private static final int SONGS = 50;
+    private static final int USERS = 5;
+
+    /** Tables that grow with the use, and must never be scanned whole */
+    private static final Set<String> GUARDED = Set.of("likes", "queued_song");
+
+    /** Indexes that can serve the guarded tables, with their leading column */
+    private static final Map<String, String> INDEXES = Map.of(
+            "likes_queued_song_ref_idx", "queued_song_ref",
+            "likes_user_id_idx", "user_id",
+            "queued_song_pkey", "queue_id",
+            "queued_song_ref_key", "ref",
+            "queued_song_song_id_idx", "song_id");
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final RecordingStatementInspector statementInspector;
+
+    public QueryPlanTest(final DataSource dataSource, final ObjectMapper objectMapper,
+            final RecordingStatementInspector statementInspector) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.statementInspector = statementInspector;
+    }
+
+    private record Fixture(UUID queueId, UUID userId, UUID songId) {
+    }
+
+    /**
+     * Some queues, with songs liked by some users
+     */
+    private Fixture seed() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Queue.deleteAll();
+            Song.deleteAll();
+            ApelleUser.delete("name LIKE 'plan-%'");
+
+            final List<ApelleUser> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                final ApelleUser user = ApelleUser.builder()
+                        .name("plan-%d".formatted(i))
+                        .password(TestPasswords.hash("plan"))
+                        .role(ApelleUserRole.USER)
+                        .build();
+                user.persist();
+                users.add(user);
+            }
+
+            final Instant start = Instant.now();
+            QueuedSong liked = null;
+            Queue first = null;
+            for (int q = 0; q < QUEUES; q++) {
+                final Queue queue = Queue.builder()
+                        .code("plan-%d".formatted(q))
+                        .config(QueueConfig.findDefault())
+                        .build();
+                queue.persist();
+                if (first == null) {
+                    first = queue;
+                }
+                for (int s = 0; s < SONGS; s++) {
+                    final YoutubeSong song = YoutubeSong.builder()
+                            .name("Plan song n. %d-%d".formatted(q, s))
+                            .duration(Duration.ofMinutes(3))
+                            .videoId("plan%03d%03d".formatted(q, s))
+                            .build();
+                    song.persist();
+                    final QueuedSong queuedSong = QueuedSong.builder()
+                            .song(song)
+                            .queue(queue)
+                            .queuedAt(start.plusMillis(s))
+                            .build();
+                    queuedSong.persist();
+                    for (int u = 0; u < USERS; u++) {
+                        if ((s + u) % 3 == 0) {
+                            Likes.builder().user(users.get(u)).song(queuedSong)
+                                    .givenAt(start.plusMillis(s * USERS + u)).count((short) 1).build().persist();
+                        }
+                    }
+                    if (liked == null) {
+                        liked = queuedSong;
+                    }
+                }
+            }
+            return new Fixture(first.getId(), users.get(0).getId(), liked.getSong().getId());
+        });
+    }
+
+    /**
+     * The entities of the fixture, loaded before recording
+     */
+    private record Loaded(Queue queue, ApelleUser user, Song song) {
+        QueueUser queueUser(final boolean likesFilled) {
+            return QueueUser.builder()
+                    .queue(queue)
+                    .user(user)
+                    .role(queue.getConfig().getCreatorRole())
+                    .likesFilled(likesFilled)
+                    .build();
+        }
+
+        QueuedSong queuedSong() {
+            return QueuedSong.findById(song, queue);
+        }
+    }
+
+    /**
+     * Call a model method in a transaction that is rolled back, recording the
+     * statements it runs
+     */
+    private List<String> statementsOf(final Fixture fixture, final Consumer<Loaded> call) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            final Loaded loaded = new Loaded(Queue.findById(fixture.queueId()), ApelleUser.findById(fixture.userId()),
+                    Song.findById(fixture.songId()));
+            final List<String> statements = statementInspector.record(() -> call.accept(loaded));
+            QuarkusTransaction.setRollbackOnly();
+            return statements;
+        });
+    }
+
+    /**
+     * Check that a scan uses an expected index to look up its leading column
+     */
+    private static void checkIndexScan(final JsonNode scan, final List<String> problems) {
+        final String index = scan.path("Index Name").asText();
+        final String leading = INDEXES.get(index);
+        if (leading == null) {
+            problems.add("%s on %s".formatted(scan.path("Node Type").asText(), index));
+        } else if (!Pattern.compile("\\b" + leading + " = ").matcher(scan.path("Index Cond").asText()).find()) {
+            problems.add("%s walking the whole %s".formatted(scan.path("Node Type").asText(), index));
+        }
+    }
+
+    /**
+     * Check the bitmap index scans feeding a bitmap heap scan
+     */
+    private static void checkBitmapScans(final JsonNode plan, final List<String> problems) {
+        for (final JsonNode child : plan.path("Plans")) {
+            if ("Bitmap Index Scan".equals(child.path("Node Type").asText())) {
+                checkIndexScan(child, problems);
+            } else {
+                checkBitmapScans(child, problems);
+            }
+        }
+    }
+
+    /**
+     * Collect the scans of the guarded tables that do not look up an index
+     */
+    private static void findScans(final JsonNode plan, final List<String> problems) {
+        if (GUARDED.contains(plan.path("Relation Name").asText())) {
+            switch (plan.path("Node Type").asText()) {
+                case "Index Scan", "Index Only Scan" -> checkIndexScan(plan, problems);
+                case "Bitmap Heap Scan" -> checkBitmapScans(plan, problems);
+                // The target of a delete, its rows are found by the scans below
+                case "ModifyTable" -> {
+                }
+                default -> problems.add("%s on %s".formatted(plan.path("Node Type").asText(),
+                        plan.path("Relation Name").asText()));
+            }
+        }
+        for (final JsonNode child : plan.path("Plans")) {
+            findScans(child, problems);
+        }
+    }
+
+    /**
+     * Explain the generic plan of a statement, returning the bad scans of the
+     * guarded tables
+     *
+     * @param sql The statement, with positional parameters
+     */
+    private List<String> badScans(final String sql) throws SQLException, IOException {
+        // Numbered parameters, so the statement can be prepared
+        final StringBuilder numbered = new StringBuilder();
+        int parameters = 0;
+        for (final char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameters);
+            } else {
+                numbered.append(c);
+            }
+        }
+        final String arguments = parameters > 0
+                ? "(" + String.join(", ", Collections.nCopies(parameters, "NULL")) + ")"
+                : "";
+
+        try (Connection connection = dataSource.getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            boolean prepared = false;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+                // The plan must not depend on the values, that are unknown
+                statement.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+                statement.execute("PREPARE plan_check AS " + numbered);
+                prepared = true;
+                try (ResultSet result = statement
+                        .executeQuery("EXPLAIN (FORMAT JSON) EXECUTE plan_check" + arguments)) {
+                    result.next();
+                    final List<String> problems = new ArrayList<>();
+                    for (final JsonNode root : objectMapper.readTree(result.getString(1))) {
+                        findScans(root.path("Plan"), problems);
+                    }
+                    return problems;
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+                // Prepared statements outlive the transaction
+                if (prepared) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("DEALLOCATE plan_check");
+                    }
+                }
+            }
+        }
+    }
+
+    @TestFactory
+    Stream<DynamicTest> hotQueriesShouldUseIndexes() throws SQLException {
+        final Fixture fixture = seed();
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE likes, queued_song");
+        }
+
+        final Map<String, Consumer<Loaded>> calls = Map.of(
+                "Likes.countUserLikes", loaded -> Likes.givenBy(loaded.user().getId(), loaded.queuedSong()),
+                "QueueUser.countLikes", loaded -> loaded.queueUser(true),
+                "QueuedSong.likes", Loaded::queuedSong,
+                "Likes.findOldests", loaded -> Likes.findOldests(loaded.queueUser(false)),
+                "Likes.givenBy", loaded -> Likes.givenBy(loaded.user().getId(), loaded.queue().getId()),
+                "Likes.deleteReferringTo", loaded -> Likes.deleteReferringTo(loaded.queuedSong()),
+                "QueuedSong.findShortViews",
+                loaded -> QueuedSong.findShortViews(loaded.queue().getId(), loaded.user().getId()),
+                "Song.queues", loaded -> loaded.song().getQueues().size());
+
+        return calls.entrySet().stream().map(call -> DynamicTest.dynamicTest(call.getKey(), () -> {
+            final List<String> statements = statementsOf(fixture, call.getValue());
+            assertFalse(statements.isEmpty(), "%s ran no statement".formatted(call.getKey()));
+            for (final String sql : statements) {
+                assertEquals(List.of(), badScans(sql), "%s does not use the indexes: %s".formatted(call.getKey(), sql));
+            }
+        }));
+    }
+}
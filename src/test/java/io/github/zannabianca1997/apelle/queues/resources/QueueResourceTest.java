@@ -3,12 +3,22 @@ package io.github.zannabianca1997.apelle.queues.resources;
 import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.MalformedURLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.jboss.resteasy.reactive.RestResponse.StatusCode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -16,21 +26,34 @@ import org.junit.jupiter.api.Test;
 
 import com.google.common.collect.Streams;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import jakarta.transaction.Transactional;
 
+import io.github.zannabianca1997.apelle.common.utils.QueryBudget;
+import io.github.zannabianca1997.apelle.queues.dtos.BulkEnqueueItemQueryDto;
+import io.github.zannabianca1997.apelle.queues.dtos.BulkEnqueueStatus;
+import io.github.zannabianca1997.apelle.queues.dtos.PlaylistImportQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.QueueQueryDto;
 import io.github.zannabianca1997.apelle.queues.dtos.QueuedSongShortQueryDto;
+import io.github.zannabianca1997.apelle.queues.dtos.events.EventTimingsDto;
+import io.github.zannabianca1997.apelle.queues.events.QueueEvent;
+import io.github.zannabianca1997.apelle.queues.events.QueueLikeEvent;
 import io.github.zannabianca1997.apelle.queues.models.Queue;
 import io.github.zannabianca1997.apelle.queues.models.QueueConfig;
 import io.github.zannabianca1997.apelle.queues.models.QueueUser;
 import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
 import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.services.QueueEventService;
 import io.github.zannabianca1997.apelle.users.models.ApelleUser;
 import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
 import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiClientMock;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistImportDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
 import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
@@ -40,7 +63,26 @@ import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
 @TestHTTPEndpoint(QueuesResource.class)
 class QueueResourceTest {
 
+    /**
+     * Statements needed to show a queue, whatever its length: authentication,
+     * queue, user, config and the songs projection. A query per song would blow
+     * it with the songs of the test playlist.
+     */
+    private static final long GET_QUEUE_BUDGET = 15;
+
+    private final SessionFactory sessionFactory;
+    private final MeterRegistry meterRegistry;
+    private final QueueEventService queueEventService;
+
+    public QueueResourceTest(final SessionFactory sessionFactory, final MeterRegistry meterRegistry,
+            final QueueEventService queueEventService) {
+        this.sessionFactory = sessionFactory;
+        this.meterRegistry = meterRegistry;
+        this.queueEventService = queueEventService;
+    }
+
     private UUID queueId;
+    private UUID adminId;
     private Queue createdQueue;
 
     @BeforeEach
@@ -52,14 +94,14 @@ class QueueResourceTest {
 
         final ApelleUser admin = ApelleUser.builder()
                 .name("zanna")
-                .password("zanna")
+                .password(TestPasswords.hash("zanna"))
                 .role(ApelleUserRole.USER)
                 .build();
         admin.persist();
 
         ApelleUser.builder()
                 .name("other")
-                .password("other_psw")
+                .password(TestPasswords.hash("other_psw"))
                 .role(ApelleUserRole.USER)
                 .build().persist();
 
@@ -76,12 +118,15 @@ class QueueResourceTest {
         queue.persist();
 
         this.queueId = queue.getId();
+        this.adminId = admin.getId();
         this.createdQueue = queue;
     }
 
+    private YoutubeApiClientMock youtubeApiClientMock;
+
     @BeforeEach
     void installYoutubeMock() {
-        YoutubeApiClientMock.install();
+        youtubeApiClientMock = YoutubeApiClientMock.install();
     }
 
     @Test
@@ -97,6 +142,152 @@ class QueueResourceTest {
         assertEquals(0, created.getQueuedSongs().size());
     }
 
+    /**
+     * Get the queue, counting the queries it needs
+     * 
+     * The queue is read once before counting, so the second level cache is warm
+     * in every measurement.
+     */
+    private long queriesToGetQueue() {
+        given()
+                .auth().basic("zanna", "zanna")
+                .get("/i/{queueId}", queueId).then()
+                .statusCode(StatusCode.OK);
+
+        final Statistics statistics = sessionFactory.getStatistics();
+        final long before = statistics.getPrepareStatementCount();
+        given()
+                .auth().basic("zanna", "zanna")
+                .get("/i/{queueId}", queueId).then()
+                .statusCode(StatusCode.OK);
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    @Test
+    void shouldGetQueueInConstantQueries() {
+        for (final var videoId : YoutubeApiClientMock.RESPONSES.keySet()) {
+            given()
+                    .auth().basic("zanna", "zanna")
+                    .contentType(ContentType.JSON)
+                    .body(YoutubeSongAddDto.builder().videoId(videoId).build())
+                    .post("/i/{queueId}/queue", queueId).then()
+                    .statusCode(StatusCode.CREATED);
+        }
+        given()
+                .auth().basic("zanna", "zanna")
+                .post("/i/{queueId}/start", queueId).then()
+                .statusCode(StatusCode.NO_CONTENT);
+
+        final long withFewSongs = queriesToGetQueue();
+
+        importTestPlaylist();
+
+        final long withManySongs = queriesToGetQueue();
+
+        assertEquals(withFewSongs, withManySongs);
+    }
+
+    private long operationsTimed(final String operation) {
+        return Search.in(meterRegistry).name("apelle.queues.operations").tag("operation", operation).timers()
+                .stream().mapToLong(timer -> timer.count()).sum();
+    }
+
+    private void importTestPlaylist() {
+        given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(YoutubePlaylistImportDto.builder().playlistId(YoutubeApiClientMock.PLAYLIST_ID).build())
+                .post("/i/{queueId}/queue/playlist", queueId).then()
+                .statusCode(StatusCode.OK);
+    }
+
+    @Test
+    void shouldGetLongQueueWithinQueryBudget() throws Throwable {
+        importTestPlaylist();
+
+        QueryBudget.atMost(sessionFactory, GET_QUEUE_BUDGET).check("Getting a queue with a playlist", () -> given()
+                .auth().basic("zanna", "zanna")
+                .get("/i/{queueId}", queueId).then()
+                .statusCode(StatusCode.OK));
+    }
+
+    @Test
+    void shouldPersonalizeEventsInASingleQuery() throws Throwable {
+        importTestPlaylist();
+        final QueueQueryDto state = given()
+                .auth().basic("zanna", "zanna")
+                .get("/i/{queueId}", queueId).then()
+                .statusCode(StatusCode.OK)
+                .extract().as(QueueQueryDto.class);
+        final QueueEvent event = QueueLikeEvent.builder()
+                .queueId(queueId)
+                .queuedSongs(state.getQueuedSongs())
+                .build();
+
+        // Done for each listener of the event stream
+        QueryBudget.atMost(sessionFactory, 1).check("Personalizing an event",
+                () -> queueEventService.asSeenBy(event, adminId));
+    }
+
+    @Test
+    void shouldTimeQueueOperations() {
+        final long before = operationsTimed("enqueue");
+
+        given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(YoutubeSongAddDto.builder()
+                        .videoId(YoutubeApiClientMock.RESPONSES.keySet().iterator().next()).build())
+                .post("/i/{queueId}/queue", queueId).then()
+                .statusCode(StatusCode.CREATED);
+
+        assertEquals(before + 1, operationsTimed("enqueue"));
+    }
+
+    @Test
+    void shouldRecordAcknowledgedEvents() {
+        final var total = meterRegistry.get("apelle.queues.events.lag").tag("stage", "total").timer();
+        final long before = total.count();
+
+        given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(EventTimingsDto.builder()
+                        .mutatedAt(Instant.now().minusMillis(100))
+                        .sentAt(Instant.now().minusMillis(10))
+                        .build())
+                .post("/i/{queueId}/events/ack", queueId).then()
+                .statusCode(StatusCode.NO_CONTENT);
+
+        assertEquals(before + 1, total.count());
+    }
+
+    @Test
+    void shouldRejectForgedAcknowledgements() {
+        final var total = meterRegistry.get("apelle.queues.events.lag").tag("stage", "total").timer();
+        final var network = meterRegistry.get("apelle.queues.events.lag").tag("stage", "network").timer();
+        final long totalBefore = total.count();
+        final long networkBefore = network.count();
+
+        for (final EventTimingsDto forged : List.of(
+                // Too old
+                EventTimingsDto.builder().mutatedAt(Instant.EPOCH).sentAt(Instant.now()).build(),
+                // In the future
+                EventTimingsDto.builder().mutatedAt(Instant.now()).sentAt(Instant.now().plusSeconds(3600)).build(),
+                // Missing
+                EventTimingsDto.builder().mutatedAt(Instant.now()).build())) {
+            given()
+                    .auth().basic("zanna", "zanna")
+                    .contentType(ContentType.JSON)
+                    .body(forged)
+                    .post("/i/{queueId}/events/ack", queueId).then()
+                    .statusCode(StatusCode.BAD_REQUEST);
+        }
+
+        assertEquals(totalBefore, total.count());
+        assertEquals(networkBefore, network.count());
+    }
+
     @Test
     void shouldEnqueueYoutubeSong() throws MalformedURLException {
         final String videoId = YoutubeApiClientMock.RESPONSES.keySet().iterator().next();
@@ -158,4 +349,138 @@ class QueueResourceTest {
                 }),
                 (given, inserted) -> () -> assertEquals(given, inserted)));
     }
+
+    @Test
+    void shouldBulkEnqueueYoutubeSongs() {
+        final String[] videoIds = YoutubeApiClientMock.RESPONSES.keySet().toArray(String[]::new);
+
+        final List<YoutubeSongAddDto> request = new ArrayList<>();
+        for (final var videoId : videoIds) {
+            request.add(YoutubeSongAddDto.builder().videoId(videoId).build());
+        }
+        request.add(YoutubeSongAddDto.builder().videoId(videoIds[0]).build());
+        request.add(YoutubeSongAddDto.builder().videoId("doesNotExist").build());
+
+        final BulkEnqueueItemQueryDto[] results = given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post("/i/{queueId}/queue/bulk", queueId).then()
+                .statusCode(StatusCode.OK)
+                .contentType(ContentType.JSON)
+                .extract().as(BulkEnqueueItemQueryDto[].class);
+
+        assertEquals(request.size(), results.length);
+        for (int i = 0; i < videoIds.length; i++) {
+            assertEquals(BulkEnqueueStatus.Added, results[i].getStatus());
+            assertNotNull(results[i].getQueuedSong());
+        }
+        assertEquals(BulkEnqueueStatus.Duplicate, results[videoIds.length].getStatus());
+        assertEquals(BulkEnqueueStatus.NotFound, results[videoIds.length + 1].getStatus());
+
+        final Queue queue = Queue.findById(queueId);
+
+        assertEquals(videoIds.length, queue.getQueuedSongs().size());
+
+        // Songs already in the queue are reported as duplicates
+        final BulkEnqueueItemQueryDto[] again = given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(List.of(YoutubeSongAddDto.builder().videoId(videoIds[0]).build()))
+                .post("/i/{queueId}/queue/bulk", queueId).then()
+                .statusCode(StatusCode.OK)
+                .contentType(ContentType.JSON)
+                .extract().as(BulkEnqueueItemQueryDto[].class);
+
+        assertEquals(BulkEnqueueStatus.Duplicate, again[0].getStatus());
+    }
+
+    /**
+     * Bulk enqueue some songs, counting the statements it needs
+     */
+    private long statementsToBulkEnqueue(final UUID queueId, final List<String> videoIds) {
+        final Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        final long before = statistics.getPrepareStatementCount();
+        given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(videoIds.stream().map(videoId -> YoutubeSongAddDto.builder().videoId(videoId).build()).toList())
+                .post("/i/{queueId}/queue/bulk", queueId).then()
+                .statusCode(StatusCode.OK);
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    @Test
+    void shouldBulkEnqueueKnownSongsInConstantStatements() {
+        final int knownSongs = 20;
+        final UUID otherQueueId = QuarkusTransaction.requiringNew().call(() -> {
+            for (int i = 0; i < knownSongs; i++) {
+                YoutubeSong.builder()
+                        .name("Known song n. %d".formatted(i))
+                        .duration(Duration.ofMinutes(3))
+                        .videoId("known%06d".formatted(i))
+                        .build().persist();
+            }
+            final Queue queue = Queue.builder()
+                    .code("other")
+                    .config(QueueConfig.findDefault())
+                    .build();
+            queue.getUsers().add(QueueUser.builder()
+                    .queue(queue)
+                    .user(ApelleUser.findById(adminId))
+                    .role(queue.getConfig().getCreatorRole())
+                    .likesFilled(false)
+                    .build());
+            queue.persist();
+            return queue.getId();
+        });
+        final String[] newSongs = YoutubeApiClientMock.RESPONSES.keySet().toArray(String[]::new);
+
+        // A new song and a known one
+        final long withFewKnown = statementsToBulkEnqueue(queueId, List.of(newSongs[0], "known000000"));
+
+        // A new song and all the other known ones, in an identical queue
+        final List<String> manyKnown = new ArrayList<>(List.of(newSongs[1]));
+        for (int i = 1; i < knownSongs; i++) {
+            manyKnown.add("known%06d".formatted(i));
+        }
+        final long withManyKnown = statementsToBulkEnqueue(otherQueueId, manyKnown);
+
+        assertEquals(withFewKnown, withManyKnown);
+    }
+
+    @Test
+    void shouldImportYoutubePlaylist() {
+        final PlaylistImportQueryDto summary = given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(YoutubePlaylistImportDto.builder().playlistId(YoutubeApiClientMock.PLAYLIST_ID).build())
+                .post("/i/{queueId}/queue/playlist", queueId).then()
+                .statusCode(StatusCode.OK)
+                .contentType(ContentType.JSON)
+                .extract().as(PlaylistImportQueryDto.class);
+
+        assertEquals(YoutubeApiClientMock.PLAYLIST_VIDEOS.size(), summary.getAdded());
+        assertEquals(1, summary.getDuplicate());
+        assertEquals(1, summary.getNotFound());
+        assertFalse(summary.isTruncated());
+
+        final Queue queue = Queue.findById(queueId);
+
+        assertEquals(YoutubeApiClientMock.PLAYLIST_VIDEOS.size(), queue.getQueuedSongs().size());
+
+        // Video data was fetched in batches
+        assertTrue(youtubeApiClientMock.getDataByIdsRequests().stream().allMatch(request -> request.size() <= 50));
+    }
+
+    @Test
+    void shouldNotImportMissingPlaylist() {
+        given()
+                .auth().basic("zanna", "zanna")
+                .contentType(ContentType.JSON)
+                .body(YoutubePlaylistImportDto.builder().playlistId("doesNotExist").build())
+                .post("/i/{queueId}/queue/playlist", queueId).then()
+                .statusCode(StatusCode.NOT_FOUND);
+    }
 }
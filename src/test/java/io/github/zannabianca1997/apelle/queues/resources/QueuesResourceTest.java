@@ -5,6 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.RestResponse.StatusCode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -14,6 +19,7 @@ import io.github.zannabianca1997.apelle.queues.dtos.QueueQueryDto;
 import io.github.zannabianca1997.apelle.queues.models.Queue;
 import io.github.zannabianca1997.apelle.users.models.ApelleUser;
 import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
@@ -29,12 +35,12 @@ class QueuesResourceTest {
         ApelleUser.deleteAll();
         ApelleUser.builder()
                 .name("zanna")
-                .password("zanna")
+                .password(TestPasswords.hash("zanna"))
                 .role(ApelleUserRole.USER)
                 .build().persist();
         ApelleUser.builder()
                 .name("other")
-                .password("other_psw")
+                .password(TestPasswords.hash("other_psw"))
                 .role(ApelleUserRole.USER)
                 .build().persist();
     }
@@ -65,6 +71,29 @@ class QueuesResourceTest {
         assertEquals(0, createdEntity.getQueuedSongs().size());
     }
 
+    @Test
+    void shouldCreateQueuesWithDistinctCodes() {
+        final int count = 50;
+        final Set<String> codes = new HashSet<>();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            codes.add(given()
+                    .auth().basic("zanna", "zanna")
+                    .post().then()
+                    .statusCode(StatusCode.CREATED)
+                    .extract().as(QueueQueryDto.class)
+                    .getCode());
+        }
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Logger.getLogger(QueuesResourceTest.class).infof("Created %d queues in %s (%.1f queues/s)",
+                count, elapsed, count * 1e9 / elapsed.toNanos());
+
+        assertEquals(count, codes.size());
+        assertEquals(count, Queue.findAll().count());
+    }
+
     @Test
     void shouldNeedAuthentication() {
         given()
@@ -0,0 +1,144 @@
+package io.github.zannabianca1997.apelle.queues.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.github.zannabianca1997.apelle.queues.dtos.QueueQueryDto;
+import io.github.zannabianca1997.apelle.queues.mappers.QueueMapper;
+import io.github.zannabianca1997.apelle.queues.models.Likes;
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.github.zannabianca1997.apelle.queues.models.QueueConfig;
+import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
+import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Compare building the state of a queue from the entities and from the
+ * projections.
+ *
+ * Excluded from the normal test run, run it with {@code ./gradlew benchmark}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class QueueSnapshotBenchmarkTest {
+    private static final int WARMUP = 5;
+    private static final int RUNS = 20;
+
+    private final QueueMapper queueMapper;
+    private final Logger log;
+
+    public QueueSnapshotBenchmarkTest(final QueueMapper queueMapper, final Logger log) {
+        this.queueMapper = queueMapper;
+        this.log = log;
+    }
+
+    private record Fixture(UUID queueId, UUID userId) {
+    }
+
+    /**
+     * Create a queue with the given number of songs, one in ten liked by the
+     * user
+     */
+    private Fixture createQueue(final int songs) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Queue.deleteAll();
+            Song.deleteAll();
+            ApelleUser.delete("name", "benchmark");
+
+            final ApelleUser user = ApelleUser.builder()
+                    .name("benchmark")
+                    .password(TestPasswords.hash("benchmark"))
+                    .role(ApelleUserRole.USER)
+                    .build();
+            user.persist();
+
+            final Queue queue = Queue.builder()
+                    .code("benchmark")
+                    .config(QueueConfig.findDefault())
+                    .build();
+            queue.persist();
+
+            final Instant start = Instant.now();
+            for (int i = 0; i < songs; i++) {
+                final YoutubeSong song = YoutubeSong.builder()
+                        .name("Benchmark song n. %d".formatted(i))
+                        .duration(Duration.ofMinutes(3))
+                        .videoId("bench%06d".formatted(i))
+                        .build();
+                song.persist();
+                final QueuedSong queuedSong = QueuedSong.builder()
+                        .song(song)
+                        .queue(queue)
+                        .queuedAt(start.plusMillis(i))
+                        .build();
+                queuedSong.persist();
+                if (i % 10 == 0) {
+                    Likes.builder().user(user).song(queuedSong).count((short) 1).build().persist();
+                }
+            }
+            return new Fixture(queue.getId(), user.getId());
+        });
+    }
+
+    private QueueQueryDto fromEntities(final Fixture fixture) {
+        final Queue queue = Queue.findById(fixture.queueId());
+        final Map<UUID, Short> userLikes = Likes.givenBy(fixture.userId(), fixture.queueId());
+        return queueMapper.toDto(queue,
+                queuedSong -> userLikes.getOrDefault(queuedSong.getSong().getId(), (short) 0));
+    }
+
+    private QueueQueryDto fromProjections(final Fixture fixture) {
+        final Queue queue = Queue.findById(fixture.queueId());
+        return queueMapper.toDto(queue, QueuedSong.findShortViews(fixture.queueId(), fixture.userId()));
+    }
+
+    /**
+     * Median time of building the state, each time in a new transaction
+     */
+    private Duration measure(final Supplier<QueueQueryDto> build) {
+        for (int i = 0; i < WARMUP; i++) {
+            QuarkusTransaction.requiringNew().call(build::get);
+        }
+        final long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            final long start = System.nanoTime();
+            QuarkusTransaction.requiringNew().call(build::get);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return Duration.ofNanos(times[RUNS / 2]);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 1_000, 10_000 })
+    void compareSnapshotPaths(final int songs) {
+        final Fixture fixture = createQueue(songs);
+
+        // Both paths must build the same state
+        assertEquals(
+                QuarkusTransaction.requiringNew().call(() -> fromEntities(fixture)).getQueuedSongs(),
+                QuarkusTransaction.requiringNew().call(() -> fromProjections(fixture)).getQueuedSongs());
+
+        final Duration entities = measure(() -> fromEntities(fixture));
+        final Duration projections = measure(() -> fromProjections(fixture));
+
+        log.infof("Queue of %d songs: entities %d us, projections %d us", songs, entities.toNanos() / 1000,
+                projections.toNanos() / 1000);
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.zannabianca1997.apelle.queues.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.queues.models.Likes;
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.github.zannabianca1997.apelle.queues.models.QueueConfig;
+import io.github.zannabianca1997.apelle.queues.models.QueueUser;
+import io.github.zannabianca1997.apelle.queues.models.QueuedSong;
+import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.queues.roles.models.QueueUserRole;
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeThumbnail;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeThumbnailSize;
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Count the statements of the write heavy paths, with and without JDBC
+ * batching.
+ *
+ * Each path runs once with batches of a single statement, and once with the
+ * configured batch size. A prepared statement is counted once for each batch.
+ *
+ * Excluded from the normal test run, run it with {@code ./gradlew benchmark}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class WriteBatchingBenchmarkTest {
+    /** Batch size that disables batching */
+    private static final int UNBATCHED = 1;
+
+    private final SessionFactory sessionFactory;
+    private final QueueService queueService;
+    private final Logger log;
+
+    public WriteBatchingBenchmarkTest(final SessionFactory sessionFactory, final QueueService queueService,
+            final Logger log) {
+        this.sessionFactory = sessionFactory;
+        this.queueService = queueService;
+        this.log = log;
+    }
+
+    @BeforeEach
+    void enableStatistics() {
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+    }
+
+    /**
+     * Run a transaction, counting the statements it prepares
+     *
+     * @param batchSize The JDBC batch size, or {@code null} for the configured
+     *                  one
+     * @param write     The content of the transaction
+     */
+    private long statements(final Integer batchSize, final Runnable write) {
+        final Statistics statistics = sessionFactory.getStatistics();
+        final long before = statistics.getPrepareStatementCount();
+        QuarkusTransaction.requiringNew().run(() -> {
+            Panache.getEntityManager().unwrap(Session.class).setJdbcBatchSize(batchSize);
+            write.run();
+        });
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    /**
+     * Run a transaction with the configured batching, counting its flushes
+     *
+     * @param write The content of the transaction
+     */
+    private long flushes(final Runnable write) {
+        final Statistics statistics = sessionFactory.getStatistics();
+        final long before = statistics.getFlushCount();
+        QuarkusTransaction.requiringNew().run(write);
+        return statistics.getFlushCount() - before;
+    }
+
+    /**
+     * Compare the statements of a path with and without batching
+     *
+     * @param path  The name of the path, for the log
+     * @param setup Prepare the data, and return the write to measure
+     * @return The statements without and with batching
+     */
+    private long[] compare(final String path, final Supplier<Runnable> setup) {
+        final long unbatched = statements(UNBATCHED, setup.get());
+        final long batched = statements(null, setup.get());
+        log.infof("%s: %d statements without batching, %d with batching", path, unbatched, batched);
+        return new long[] { unbatched, batched };
+    }
+
+    private static YoutubeSong songWithThumbnails(final String videoId) {
+        final Map<YoutubeThumbnailSize, YoutubeThumbnail> thumbnails = new EnumMap<>(YoutubeThumbnailSize.class);
+        for (final YoutubeThumbnailSize size : YoutubeThumbnailSize.values()) {
+            try {
+                thumbnails.put(size, YoutubeThumbnail.builder()
+                        .size(size)
+                        .url(URI.create("https://i.ytimg.com/vi/%s/%s.jpg".formatted(videoId, size)).toURL())
+                        .width(120).height(90)
+                        .build());
+            } catch (final MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        final YoutubeSong song = YoutubeSong.builder()
+                .name("Batched song %s".formatted(videoId))
+                .duration(Duration.ofMinutes(3))
+                .videoId(videoId)
+                .thumbnails(thumbnails)
+                .build();
+        song.getThumbnails().values().forEach(thumbnail -> thumbnail.setSong(song));
+        return song;
+    }
+
+    private record Fixture(UUID queueId, UUID userId, UUID likedSongId) {
+    }
+
+    /**
+     * A playing queue, with a voter that gave all their likes to different
+     * songs, and a song without likes
+     */
+    private Fixture createQueue() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Queue.deleteAll();
+            Song.deleteAll();
+            ApelleUser.delete("name", "batching");
+
+            final ApelleUser user = ApelleUser.builder()
+                    .name("batching")
+                    .password(TestPasswords.hash("batching"))
+                    .role(ApelleUserRole.USER)
+                    .build();
+            user.persist();
+
+            final Queue queue = Queue.builder()
+                    .code("batching")
+                    .config(QueueConfig.findDefault())
+                    .build();
+            final QueueUserRole voter = QueueUserRole.find("name", "VOTER").firstResult();
+            queue.getUsers().add(QueueUser.builder()
+                    .queue(queue)
+                    .user(user)
+                    .role(voter)
+                    .likesFilled(false)
+                    .build());
+            queue.persist();
+
+            // The first song is played, the last one is liked during the test
+            final Instant start = Instant.now();
+            final int songs = voter.getMaxLikes() + 2;
+            UUID likedSongId = null;
+            for (int i = 0; i < songs; i++) {
+                final YoutubeSong song = songWithThumbnails("batch%06d".formatted(i));
+                song.persist();
+                final QueuedSong queuedSong = queue.enqueue(song, start.plusMillis(i));
+                if (i == songs - 1) {
+                    likedSongId = song.getId();
+                } else if (i > 0) {
+                    Likes.builder().user(user).song(queuedSong).givenAt(start.plusMillis(i))
+                            .count((short) 1).build().persist();
+                }
+            }
+            queue.start();
+            return new Fixture(queue.getId(), user.getId(), likedSongId);
+        });
+    }
+
+    @Test
+    void compareSongInsertion() {
+        final long[] counts = compare("Inserting a song with its thumbnails", () -> {
+            QuarkusTransaction.requiringNew().run(() -> Song.deleteAll());
+            return () -> songWithThumbnails("batched").persist();
+        });
+        assertTrue(counts[1] < counts[0], "The thumbnails should be inserted in a batch");
+    }
+
+    @Test
+    void compareLikeEviction() {
+        final long[] counts = compare("Liking a song, removing all the previous likes", () -> {
+            final Fixture fixture = createQueue();
+            return () -> {
+                final Queue queue = Queue.findById(fixture.queueId());
+                final QueueUser user = QueueUser.findById(ApelleUser.findById(fixture.userId()), queue);
+                final QueuedSong song = queue.getQueuedSongs().stream()
+                        .filter(queued -> queued.getSong().getId().equals(fixture.likedSongId()))
+                        .findAny().orElseThrow();
+                try {
+                    queueService.like(song, user, user.getMaxLikes());
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        });
+        assertTrue(counts[1] < counts[0], "The removed likes should be deleted in a batch");
+    }
+
+    private static Runnable next(final Fixture fixture) {
+        return () -> {
+            try {
+                Queue.<Queue>findById(fixture.queueId()).next();
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @Test
+    void compareNext() {
+        compare("Moving to the next song", () -> next(createQueue()));
+
+        // The re-enqueued song, the removed one and the queue are each a single
+        // different statement, so there is nothing for a batch to merge. What
+        // batching needs is that they are not split by a flush in the middle
+        assertEquals(1, flushes(next(createQueue())), "The writes of next should be flushed once, at the commit");
+    }
+}
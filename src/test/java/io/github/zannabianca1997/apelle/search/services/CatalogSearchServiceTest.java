@@ -0,0 +1,67 @@
+package io.github.zannabianca1997.apelle.search.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.queues.models.Queue;
+import io.github.zannabianca1997.apelle.queues.models.Song;
+import io.github.zannabianca1997.apelle.search.services.CatalogSearchService.CatalogResult;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.transaction.Transactional;
+
+@QuarkusTest
+@Tag("search")
+class CatalogSearchServiceTest {
+    private final CatalogSearchService catalogSearchService;
+
+    public CatalogSearchServiceTest(final CatalogSearchService catalogSearchService) {
+        this.catalogSearchService = catalogSearchService;
+    }
+
+    @BeforeEach
+    @Transactional
+    void createSongs() {
+        Queue.deleteAll();
+        Song.deleteAll();
+
+        YoutubeSong.builder().name("Rick Astley - Never Gonna Give You Up").duration(Duration.ofSeconds(213))
+                .videoId("dQw4w9WgXcQ").build().persist();
+
+        final YoutubeSong popular = YoutubeSong.builder().name("Never Gonna Give You Up (Live)")
+                .duration(Duration.ofSeconds(220)).videoId("popularLive").build();
+        popular.countEnqueue();
+        popular.countPlay();
+        popular.persist();
+
+        YoutubeSong.builder().name("Darude - Sandstorm").duration(Duration.ofSeconds(225))
+                .videoId("y6120QOlsfU").build().persist();
+    }
+
+    @Test
+    void shouldFindKnownSongsByWords() {
+        final List<CatalogResult> results = catalogSearchService.search("never gonna give", 10);
+
+        assertEquals(2, results.size());
+        // Same relevance, but played more
+        assertEquals(YoutubeSongAddDto.builder().videoId("popularLive").build(),
+                results.get(0).song().getEnqueueData());
+    }
+
+    @Test
+    void shouldFindMisspelledSongs() {
+        final List<CatalogResult> results = catalogSearchService.search("sandstorn", 10);
+
+        assertEquals(1, results.size());
+        assertEquals("Darude - Sandstorm", results.get(0).song().getName());
+        assertTrue(results.get(0).relevance() > 0);
+    }
+}
@@ -13,17 +13,23 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import io.github.zannabianca1997.apelle.users.configs.PasswordHashingConfig;
 import io.github.zannabianca1997.apelle.users.dtos.UserCreateDto;
 import io.github.zannabianca1997.apelle.users.dtos.UserQueryDto;
 import io.github.zannabianca1997.apelle.users.mappers.UserMapper;
 import io.github.zannabianca1997.apelle.users.models.ApelleUser;
 import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.utils.BusyPasswordHasher;
+import io.github.zannabianca1997.apelle.users.utils.PasswordHasher;
+import io.github.zannabianca1997.apelle.users.utils.TestPasswords;
 import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusMock;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.HttpHeaders;
 
 @QuarkusTest
 @TestHTTPEndpoint(UsersResource.class)
@@ -31,9 +37,11 @@ import jakarta.transaction.Transactional;
 class UserResourceTest {
 
     private final UserMapper userMapper;
+    private final PasswordHashingConfig passwordHashingConfig;
 
-    public UserResourceTest(final UserMapper userMapper) {
+    public UserResourceTest(final UserMapper userMapper, final PasswordHashingConfig passwordHashingConfig) {
         this.userMapper = userMapper;
+        this.passwordHashingConfig = passwordHashingConfig;
     }
 
     @BeforeEach
@@ -55,7 +63,7 @@ class UserResourceTest {
 
     private ApelleUser createUser(final String name, final String password) {
         final var user = ApelleUser.builder()
-                .name(name).password(password)
+                .name(name).password(TestPasswords.hash(password))
                 .role(ApelleUserRole.USER)
                 .build();
         QuarkusTransaction.requiringNew()
@@ -74,6 +82,18 @@ class UserResourceTest {
         assertEquals("zanna", created.getName());
     }
 
+    @Test
+    void shouldAskToRetrySignupWhenThePoolIsFull() {
+        QuarkusMock.installMockForType(new BusyPasswordHasher(passwordHashingConfig), PasswordHasher.class);
+
+        createUserRequest("zanna", "zanna").then()
+                .statusCode(StatusCode.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER,
+                        Long.toString(Math.max(1, passwordHashingConfig.retryAfter().toSeconds())));
+
+        assertNull(ApelleUser.findByName("zanna"));
+    }
+
     @Test
     void shouldNotCreateDoubleUser() {
         createUser("zanna", "zanna");
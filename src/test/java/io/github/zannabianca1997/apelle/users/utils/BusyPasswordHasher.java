@@ -0,0 +1,33 @@
+package io.github.zannabianca1997.apelle.users.utils;
+
+import org.jboss.logging.Logger;
+
+import io.github.zannabianca1997.apelle.users.configs.PasswordHashingConfig;
+import io.github.zannabianca1997.apelle.users.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * A password hasher whose pool is always full.
+ *
+ * Install it with {@link io.quarkus.test.junit.QuarkusMock} to check how the
+ * refused requests are reported.
+ */
+public class BusyPasswordHasher extends PasswordHasher {
+    private final PasswordHashingConfig config;
+
+    public BusyPasswordHasher(final PasswordHashingConfig config) {
+        super(config, new SimpleMeterRegistry(), Logger.getLogger(PasswordHasher.class));
+        this.config = config;
+    }
+
+    @Override
+    public Uni<String> hash(final String password) {
+        return Uni.createFrom().failure(new PasswordHashingBusyException(config.retryAfter()));
+    }
+
+    @Override
+    public Uni<Boolean> matches(final String password, final String hash) {
+        return Uni.createFrom().failure(new PasswordHashingBusyException(config.retryAfter()));
+    }
+}
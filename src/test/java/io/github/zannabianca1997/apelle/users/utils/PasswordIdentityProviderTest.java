@@ -0,0 +1,82 @@
+package io.github.zannabianca1997.apelle.users.utils;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+
+import org.jboss.resteasy.reactive.RestResponse.StatusCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.users.configs.PasswordHashingConfig;
+import io.github.zannabianca1997.apelle.users.models.ApelleUser;
+import io.github.zannabianca1997.apelle.users.models.ApelleUserRole;
+import io.github.zannabianca1997.apelle.users.resources.UsersResource;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.HttpHeaders;
+
+@QuarkusTest
+@TestHTTPEndpoint(UsersResource.class)
+@Tag("auth")
+class PasswordIdentityProviderTest {
+
+    private final PasswordHashingConfig config;
+
+    public PasswordIdentityProviderTest(final PasswordHashingConfig config) {
+        this.config = config;
+    }
+
+    @BeforeEach
+    @Transactional
+    void createUser() {
+        ApelleUser.deleteAll();
+        ApelleUser.builder()
+                .name("zanna")
+                .password(TestPasswords.hash("zanna"))
+                .role(ApelleUserRole.USER)
+                .build().persist();
+    }
+
+    @Test
+    void shouldAuthenticateWithTheRightPassword() {
+        given()
+                .auth().basic("zanna", "zanna")
+                .get("/me")
+                .then()
+                .statusCode(StatusCode.OK)
+                .body("name", is("zanna"));
+    }
+
+    @Test
+    void shouldRefuseAWrongPassword() {
+        given()
+                .auth().basic("zanna", "wrong")
+                .get("/me")
+                .then()
+                .statusCode(StatusCode.UNAUTHORIZED);
+    }
+
+    @Test
+    void shouldRefuseAnUnknownUser() {
+        given()
+                .auth().basic("nobody", "zanna")
+                .get("/me")
+                .then()
+                .statusCode(StatusCode.UNAUTHORIZED);
+    }
+
+    @Test
+    void shouldAskToRetryWhenThePoolIsFull() {
+        QuarkusMock.installMockForType(new BusyPasswordHasher(config), PasswordHasher.class);
+
+        given()
+                .auth().basic("zanna", "zanna")
+                .get("/me")
+                .then()
+                .statusCode(StatusCode.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, config.retryAfter().toSeconds())));
+    }
+}
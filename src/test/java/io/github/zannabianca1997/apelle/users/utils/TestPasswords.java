@@ -0,0 +1,31 @@
+package io.github.zannabianca1997.apelle.users.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.quarkus.elytron.security.common.BcryptUtil;
+
+/**
+ * Hash the passwords of the users created directly in the database.
+ *
+ * The hashes use the lowest bcrypt cost, so the fixtures are quick to create,
+ * and are checked by the application as any other.
+ */
+public final class TestPasswords {
+    private static final int COST = 4;
+
+    private static final Map<String, String> HASHES = new ConcurrentHashMap<>();
+
+    private TestPasswords() {
+    }
+
+    /**
+     * Hash a password
+     *
+     * @param password The plain text password
+     * @return The bcrypt hash of the password
+     */
+    public static String hash(final String password) {
+        return HASHES.computeIfAbsent(password, plain -> BcryptUtil.bcryptHash(plain, COST));
+    }
+}
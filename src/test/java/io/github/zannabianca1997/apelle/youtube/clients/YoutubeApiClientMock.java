@@ -1,19 +1,30 @@
 package io.github.zannabianca1997.apelle.youtube.clients;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePaginatedDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistItemDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSearchResultDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeThumbnailsDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto.ContentDetails;
 import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto.Snippet;
 import io.quarkus.test.junit.QuarkusMock;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response.Status;
+import lombok.Getter;
 
 /**
  * Mocks the youtube api.
@@ -51,28 +62,169 @@ public class YoutubeApiClientMock implements YoutubeApiClient {
 
     public static final YoutubePaginatedDto<YoutubeVideoDataDto> NOT_FOUND = YoutubePaginatedDto.ofNone();
 
+    /**
+     * Id of the mocked playlist
+     */
+    public static final String PLAYLIST_ID = "PLmockedPlaylist";
+
+    /**
+     * Videos that are only reachable through the mocked playlist
+     */
+    public static final Map<String, YoutubeVideoDataDto> PLAYLIST_VIDEOS = IntStream.range(0, 120)
+            .mapToObj(i -> YoutubeVideoDataDto.builder()
+                    .id("playlist%04d".formatted(i))
+                    .snippet(Snippet.builder()
+                            .title("Playlist video n. %d".formatted(i))
+                            .thumbnails(null)
+                            .build())
+                    .contentDetails(ContentDetails.builder()
+                            .duration(Duration.ofMinutes(3).plusSeconds(i))
+                            .build())
+                    .build())
+            .collect(Collectors.toMap(YoutubeVideoDataDto::getId, video -> video));
+
+    /**
+     * Content of the mocked playlist.
+     * 
+     * It contains all the playlist videos, a video that does not exist anymore and
+     * a repeated one.
+     */
+    public static final List<String> PLAYLIST = Stream.concat(
+            PLAYLIST_VIDEOS.keySet().stream().sorted(),
+            Stream.of("deletedVideo", "playlist0000"))
+            .toList();
+
     @Override
     public YoutubePaginatedDto<YoutubeVideoDataDto> getDataById(final String videoId) {
         return RESPONSES.getOrDefault(videoId, NOT_FOUND);
     }
 
-    public static void install() {
+    /**
+     * The id lists received by {@link #getDataByIds(String)}, one per call
+     */
+    @Getter
+    private final List<List<String>> dataByIdsRequests = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public YoutubePaginatedDto<YoutubeVideoDataDto> getDataByIds(final String videoIds) {
+        final List<String> ids = List.of(videoIds.split(","));
+        dataByIdsRequests.add(ids);
+
+        final List<YoutubeVideoDataDto> found = ids.stream()
+                .map(id -> RESPONSES.containsKey(id) ? RESPONSES.get(id).unwrapSingle()
+                        : id.startsWith("search") ? searchedVideo(id) : PLAYLIST_VIDEOS.get(id))
+                .filter(Objects::nonNull)
+                .toList();
+        return new YoutubePaginatedDto<>(new YoutubePaginatedDto.PageInfo(found.size()), found, null);
+    }
+
+    @Override
+    public YoutubePaginatedDto<YoutubePlaylistItemDto> getPlaylistItems(final int maxResults, final String playlistId,
+            final String pageToken) {
+        if (!PLAYLIST_ID.equals(playlistId)) {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }
+        final int start = pageToken != null ? Integer.parseInt(pageToken, 16) : 0;
+        final int end = Math.min(start + maxResults, PLAYLIST.size());
+
+        final List<YoutubePlaylistItemDto> items = PLAYLIST.subList(start, end).stream()
+                .map(videoId -> YoutubePlaylistItemDto.builder()
+                        .contentDetails(YoutubePlaylistItemDto.ContentDetails.builder().videoId(videoId).build())
+                        .build())
+                .toList();
+        return new YoutubePaginatedDto<>(new YoutubePaginatedDto.PageInfo(PLAYLIST.size()), items,
+                end < PLAYLIST.size() ? Integer.toHexString(end) : null);
+    }
+
+    /**
+     * Install the mock, both as the blocking and as the reactive client
+     */
+    public static YoutubeApiClientMock install() {
+        final YoutubeApiClientMock mock = new YoutubeApiClientMock();
         QuarkusMock.installMockForType(
-                new YoutubeApiClientMock(),
+                mock,
                 YoutubeApiClient.class,
                 RestClient.LITERAL);
+        QuarkusMock.installMockForType(
+                new YoutubeReactiveApiClientMock(mock),
+                YoutubeReactiveApiClient.class,
+                RestClient.LITERAL);
+        return mock;
+    }
+
+    /**
+     * Number of results of every mocked search
+     */
+    public static final int SEARCH_RESULTS = 200;
+
+    /**
+     * The queries received by {@link #getSearchByKeywords(int, String)} and
+     * {@link #getSearchPage(int, String, String)}, one per call
+     */
+    @Getter
+    private final List<String> searchRequests = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * The data of a video returned by the mocked searches
+     */
+    public static YoutubeVideoDataDto searchedVideo(final String videoId) {
+        return YoutubeVideoDataDto.builder()
+                .id(videoId)
+                .snippet(Snippet.builder()
+                        .title("Searched video %s".formatted(videoId))
+                        .thumbnails(null)
+                        .build())
+                .contentDetails(ContentDetails.builder()
+                        .duration(Duration.ofMinutes(4))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Searches are slow, give concurrent requests the time to overlap
+     */
+    static final Duration SEARCH_LATENCY = Duration.ofMillis(50);
+
+    /**
+     * Record a search and build the page of results. Results are named after the
+     * query and their position
+     */
+    YoutubePaginatedDto<YoutubeSearchResultDto> searchPage(final int maxResults, final String query,
+            final int start) {
+        searchRequests.add(query);
+
+        final int end = Math.min(start + maxResults, SEARCH_RESULTS);
+        final List<YoutubeSearchResultDto> items = IntStream.range(start, end)
+                .mapToObj(i -> YoutubeSearchResultDto.builder()
+                        .id(YoutubeSearchResultDto.Id.builder().videoId("search%04d".formatted(i)).build())
+                        .snippet(YoutubeSearchResultDto.Snippet.builder()
+                                .title("%s n. %d".formatted(query, i))
+                                .thumbnails(YoutubeThumbnailsDto.builder().build())
+                                .build())
+                        .build())
+                .toList();
+        return new YoutubePaginatedDto<>(new YoutubePaginatedDto.PageInfo(SEARCH_RESULTS), items,
+                end < SEARCH_RESULTS ? Integer.toHexString(end) : null);
+    }
+
+    private static void waitSearchLatency() {
+        try {
+            Thread.sleep(SEARCH_LATENCY);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public YoutubePaginatedDto<YoutubeSearchResultDto> getSearchByKeywords(final int maxResults, final String query) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getSearchByKeywords'");
+        waitSearchLatency();
+        return searchPage(maxResults, query, 0);
     }
 
     @Override
     public YoutubePaginatedDto<YoutubeSearchResultDto> getSearchPage(final int maxResults, final String query,
             final String pageToken) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getSearchPage'");
+        waitSearchLatency();
+        return searchPage(maxResults, query, Integer.parseInt(pageToken, 16));
     }
 }
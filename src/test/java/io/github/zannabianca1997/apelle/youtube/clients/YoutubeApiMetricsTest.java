@@ -0,0 +1,64 @@
+package io.github.zannabianca1997.apelle.youtube.clients;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response.Status;
+
+@QuarkusTest
+@Tag("youtube")
+class YoutubeApiMetricsTest {
+    private final YoutubeApiMetrics youtubeApiMetrics;
+    private final MeterRegistry meterRegistry;
+
+    public YoutubeApiMetricsTest(final YoutubeApiMetrics youtubeApiMetrics, final MeterRegistry meterRegistry) {
+        this.youtubeApiMetrics = youtubeApiMetrics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private long callsTimed(final String method, final String outcome) {
+        return Search.in(meterRegistry).name("apelle.youtube.calls").tag("method", method).tag("outcome", outcome)
+                .timers().stream().mapToLong(timer -> timer.count()).sum();
+    }
+
+    @Test
+    void shouldCountCallsWithoutResponse() {
+        final long before = callsTimed("refused", "UNKNOWN");
+
+        final Uni<String> call = youtubeApiMetrics.time("refused",
+                () -> Uni.createFrom().failure(new ProcessingException("Connection refused")));
+        assertThrows(ProcessingException.class, () -> call.await().indefinitely());
+
+        assertEquals(before + 1, callsTimed("refused", "UNKNOWN"));
+    }
+
+    @Test
+    void shouldCountFailedResponses() {
+        final long before = callsTimed("missing", "CLIENT_ERROR");
+
+        assertThrows(WebApplicationException.class, () -> youtubeApiMetrics.timeBlocking("missing", () -> {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }));
+
+        assertEquals(before + 1, callsTimed("missing", "CLIENT_ERROR"));
+    }
+
+    @Test
+    void shouldCountSuccessfulCalls() {
+        final long before = callsTimed("found", "SUCCESS");
+
+        assertEquals("found", youtubeApiMetrics.time("found", () -> Uni.createFrom().item("found"))
+                .await().indefinitely());
+
+        assertEquals(before + 1, callsTimed("found", "SUCCESS"));
+    }
+}
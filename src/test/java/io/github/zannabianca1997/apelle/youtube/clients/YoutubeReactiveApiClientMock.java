@@ -0,0 +1,46 @@
+package io.github.zannabianca1997.apelle.youtube.clients;
+
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePaginatedDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubePlaylistItemDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSearchResultDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Mocks the non blocking youtube api.
+ * 
+ * Answers as {@link YoutubeApiClientMock}, recording the requests in it, but
+ * without holding a thread while the response is delayed.
+ */
+public class YoutubeReactiveApiClientMock implements YoutubeReactiveApiClient {
+    private final YoutubeApiClientMock blocking;
+
+    public YoutubeReactiveApiClientMock(final YoutubeApiClientMock blocking) {
+        this.blocking = blocking;
+    }
+
+    @Override
+    public Uni<YoutubePaginatedDto<YoutubeVideoDataDto>> getDataByIds(final String videoIds) {
+        return Uni.createFrom().item(() -> blocking.getDataByIds(videoIds));
+    }
+
+    @Override
+    public Uni<YoutubePaginatedDto<YoutubeSearchResultDto>> getSearchByKeywords(final int maxResults,
+            final String query) {
+        return Uni.createFrom().item(() -> blocking.searchPage(maxResults, query, 0))
+                .onItem().delayIt().by(YoutubeApiClientMock.SEARCH_LATENCY);
+    }
+
+    @Override
+    public Uni<YoutubePaginatedDto<YoutubeSearchResultDto>> getSearchPage(final int maxResults, final String query,
+            final String pageToken) {
+        return Uni.createFrom().item(() -> blocking.searchPage(maxResults, query, Integer.parseInt(pageToken, 16)))
+                .onItem().delayIt().by(YoutubeApiClientMock.SEARCH_LATENCY);
+    }
+
+    @Override
+    public Uni<YoutubePaginatedDto<YoutubePlaylistItemDto>> getPlaylistItems(final int maxResults,
+            final String playlistId, final String pageToken) {
+        return Uni.createFrom().item(() -> blocking.getPlaylistItems(maxResults, playlistId, pageToken));
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.common.dtos.PageRequest;
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiClientMock;
+import io.github.zannabianca1997.apelle.youtube.configs.QuotaConfig;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeQuotaExceededException;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Operation;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Priority;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+@QuarkusTest
+@Tag("youtube")
+@TestProfile(YoutubeQuotaManagerTest.SmallQuota.class)
+class YoutubeQuotaManagerTest {
+    /**
+     * Enough for a single search, and some videos
+     */
+    public static class SmallQuota implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("apelle.songs.sources.youtube.quota.daily-limit", "150");
+        }
+    }
+
+    private final YoutubeQuotaManager quotaManager;
+    private final YoutubeService youtubeService;
+    private final QuotaConfig quotaConfig;
+    private final RedisDataSource redisDataSource;
+
+    private YoutubeApiClientMock youtubeApiClientMock;
+
+    public YoutubeQuotaManagerTest(final YoutubeQuotaManager quotaManager, final YoutubeService youtubeService,
+            final QuotaConfig quotaConfig, final RedisDataSource redisDataSource) {
+        this.quotaManager = quotaManager;
+        this.youtubeService = youtubeService;
+        this.quotaConfig = quotaConfig;
+        this.redisDataSource = redisDataSource;
+    }
+
+    @BeforeEach
+    void resetQuota() {
+        youtubeApiClientMock = YoutubeApiClientMock.install();
+        redisDataSource.key()
+                .del(YoutubeQuotaManager.class.getName() + ":used:" + LocalDate.now(quotaConfig.resetZone()));
+    }
+
+    @Test
+    void shouldKeepQuotaForEnqueues() {
+        assertDoesNotThrow(() -> quotaManager.acquireAndAwait(Operation.SEARCH, Priority.FIRST_PAGE));
+
+        // The search left less than its reserve
+        assertThrows(YoutubeQuotaExceededException.class,
+                () -> quotaManager.acquireAndAwait(Operation.SEARCH, Priority.FIRST_PAGE));
+        assertDoesNotThrow(() -> quotaManager.acquireAndAwait(Operation.VIDEOS, Priority.ENQUEUE));
+    }
+
+    @Test
+    void shouldServeCachedResultsWhenExhausted() {
+        final String query = "quota " + UUID.randomUUID();
+
+        youtubeService.search(query, new PageRequest()).await().indefinitely();
+        final var failure = assertThrows(CompletionException.class,
+                () -> youtubeService.search("another " + query, new PageRequest()).await().indefinitely());
+        assertInstanceOf(YoutubeQuotaExceededException.class, failure.getCause());
+
+        // Already searched: served from the cache, even if no quota is left
+        final var cached = youtubeService.search(query, new PageRequest()).await().indefinitely();
+
+        assertEquals(1, youtubeApiClientMock.getSearchRequests().size());
+        assertEquals(query + " n. 0", cached.getItems().get(0).getName());
+    }
+}
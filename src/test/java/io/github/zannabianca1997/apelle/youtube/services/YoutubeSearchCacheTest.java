@@ -0,0 +1,70 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
+import io.github.zannabianca1997.apelle.youtube.models.CachedYoutubeSearchMeta;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+@Tag("youtube")
+class YoutubeSearchCacheTest {
+    private final YoutubeSearchCache searchCache;
+    private final RedisDataSource redisDataSource;
+
+    public YoutubeSearchCacheTest(final YoutubeSearchCache searchCache, final RedisDataSource redisDataSource) {
+        this.searchCache = searchCache;
+        this.redisDataSource = redisDataSource;
+    }
+
+    private static SearchedSongQueryDto result(final String videoId) {
+        return SearchedSongQueryDto.builder()
+                .name("Result %s".formatted(videoId))
+                .enqueueData(YoutubeSongAddDto.builder().videoId(videoId).build())
+                .build();
+    }
+
+    @Test
+    void shouldExpireResultsAppendedToAnEmptySearch() {
+        final String key = "empty search " + UUID.randomUUID();
+        final CachedYoutubeSearchMeta empty = new CachedYoutubeSearchMeta(0, 1, "next");
+        searchCache.create(key, List.of(), empty, Duration.ofMinutes(1)).await().indefinitely();
+
+        assertTrue(searchCache.append(key, empty, List.of(result("foundlater0")),
+                new CachedYoutubeSearchMeta(1, 1, null))
+                .await().indefinitely());
+
+        final long ttl = redisDataSource.key().pttl(YoutubeSearchCache.itemsKey(key));
+        assertTrue(ttl > 0 && ttl <= Duration.ofMinutes(1).toMillis(),
+                "The appended results expire in %d ms".formatted(ttl));
+    }
+
+    @Test
+    void shouldNotChangeResultsAlreadyRead() {
+        final String key = "shared search " + UUID.randomUUID();
+        final CachedYoutubeSearchMeta first = new CachedYoutubeSearchMeta(1, 2, "next");
+        searchCache.create(key, List.of(result("sharedres00")), first, Duration.ofMinutes(1))
+                .await().indefinitely();
+
+        final List<SearchedSongQueryDto> read = searchCache.getItems(key, 0, 1).await().indefinitely();
+        assertThrows(UnsupportedOperationException.class, () -> read.add(result("sharedres99")));
+
+        // Extending the search replaces the copy in memory, the one read is untouched
+        assertTrue(searchCache.append(key, first, List.of(result("sharedres01")),
+                new CachedYoutubeSearchMeta(2, 2, null)).await().indefinitely());
+        assertEquals(List.of(result("sharedres00")), read);
+        assertEquals(List.of(result("sharedres00"), result("sharedres01")),
+                searchCache.getItems(key, 0, 2).await().indefinitely());
+    }
+}
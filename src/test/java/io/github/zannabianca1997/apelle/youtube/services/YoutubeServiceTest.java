@@ -0,0 +1,240 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.common.dtos.Page;
+import io.github.zannabianca1997.apelle.common.dtos.PageRequest;
+import io.github.zannabianca1997.apelle.common.utils.QueryBudget;
+import io.github.zannabianca1997.apelle.search.dtos.SearchedSongQueryDto;
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiClientMock;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeSongAddDto;
+import io.github.zannabianca1997.apelle.youtube.models.CachedYoutubeSearch;
+import io.github.zannabianca1997.apelle.youtube.models.YoutubeSong;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.value.SetArgs;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+@Tag("youtube")
+class YoutubeServiceTest {
+    private static final int CONCURRENT_SEARCHES = 10;
+
+    private final YoutubeService youtubeService;
+    private final MeterRegistry meterRegistry;
+    private final RedisDataSource redisDataSource;
+    private final YoutubeVideoResolver videoResolver;
+    private final SessionFactory sessionFactory;
+
+    private YoutubeApiClientMock youtubeApiClientMock;
+    private ExecutorService executor;
+
+    public YoutubeServiceTest(final YoutubeService youtubeService, final MeterRegistry meterRegistry,
+            final RedisDataSource redisDataSource, final YoutubeVideoResolver videoResolver,
+            final SessionFactory sessionFactory) {
+        this.youtubeService = youtubeService;
+        this.sessionFactory = sessionFactory;
+        this.videoResolver = videoResolver;
+        this.meterRegistry = meterRegistry;
+        this.redisDataSource = redisDataSource;
+    }
+
+    @BeforeEach
+    void installYoutubeMock() {
+        youtubeApiClientMock = YoutubeApiClientMock.install();
+        executor = Executors.newFixedThreadPool(CONCURRENT_SEARCHES);
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static PageRequest pageRequest(final String page) {
+        final PageRequest pageRequest = new PageRequest();
+        pageRequest.setPage(page);
+        return pageRequest;
+    }
+
+    private List<Page<SearchedSongQueryDto>> searchConcurrently(final String query, final String page)
+            throws InterruptedException, ExecutionException {
+        final List<Future<Page<SearchedSongQueryDto>>> searches = IntStream.range(0, CONCURRENT_SEARCHES)
+                .mapToObj(i -> executor
+                        .submit(() -> youtubeService.search(query, pageRequest(page)).await().indefinitely()))
+                .toList();
+        final List<Page<SearchedSongQueryDto>> results = new ArrayList<>();
+        for (final var search : searches) {
+            results.add(search.get());
+        }
+        return results;
+    }
+
+    @Test
+    void shouldSearchOnceForConcurrentIdenticalQueries() throws InterruptedException, ExecutionException {
+        final String query = "single flight " + UUID.randomUUID();
+
+        final var results = searchConcurrently(query, null);
+
+        assertEquals(1, youtubeApiClientMock.getSearchRequests().size());
+        for (final var result : results) {
+            assertEquals(results.get(0).getItems(), result.getItems());
+        }
+    }
+
+    @Test
+    void shouldContinueOnceForConcurrentDeepPages()
+            throws InterruptedException, ExecutionException {
+        final String query = "single flight " + UUID.randomUUID();
+
+        youtubeService.search(query, pageRequest(null)).await().indefinitely();
+        // Page 10 of 5 items is past the first youtube page
+        final var results = searchConcurrently(query, "a");
+
+        assertEquals(2, youtubeApiClientMock.getSearchRequests().size());
+        for (final var result : results) {
+            assertEquals(results.get(0).getItems(), result.getItems());
+            assertEquals(query + " n. 50", result.getItems().get(0).getName());
+        }
+    }
+
+    @Test
+    void shouldShiftThePages() {
+        final String query = "shifted " + UUID.randomUUID();
+
+        final var first = youtubeService.search(query, pageRequest(null), 2).await().indefinitely();
+        final var second = youtubeService.search(query, pageRequest(first.getPageInfo().getNext()), 2)
+                .await().indefinitely();
+
+        // The first page leaves room for 2 items, the second starts where it ended
+        assertEquals(3, first.getItems().size());
+        assertEquals(query + " n. 0", first.getItems().get(0).getName());
+        assertEquals(5, second.getItems().size());
+        assertEquals(query + " n. 3", second.getItems().get(0).getName());
+    }
+
+    @Test
+    void shouldPrefetchNextPage() throws InterruptedException {
+        final String query = "prefetch " + UUID.randomUUID();
+
+        youtubeService.search(query, pageRequest(null)).await().indefinitely();
+        // Page 8 of 5 items is past the prefetch threshold of the first youtube page
+        youtubeService.search(query, pageRequest("8")).await().indefinitely();
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (youtubeApiClientMock.getSearchRequests().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, youtubeApiClientMock.getSearchRequests().size());
+        // Give the prefetch the time to save the page
+        Thread.sleep(200);
+
+        // Page 10 is now served from the cache
+        final var result = youtubeService.search(query, pageRequest("a")).await().indefinitely();
+
+        assertEquals(2, youtubeApiClientMock.getSearchRequests().size());
+        assertEquals(query + " n. 50", result.getItems().get(0).getName());
+    }
+
+    @Test
+    void shouldResolveFoundVideosWhileSearching() throws InterruptedException, ExecutionException {
+        final String query = "enrich " + UUID.randomUUID();
+
+        final var result = youtubeService.search(query, pageRequest(null)).await().indefinitely();
+        final int videoRequests = youtubeApiClientMock.getDataByIdsRequests().size();
+
+        final var songAdd = (YoutubeSongAddDto) result.getItems().get(0).getEnqueueData();
+        videoResolver.resolve(songAdd.getVideoId()).get();
+
+        // Adding the song to a queue does not need to ask youtube
+        assertEquals(videoRequests, youtubeApiClientMock.getDataByIdsRequests().size());
+    }
+
+    private double cacheLookups(final String tier, final String result) {
+        return meterRegistry.get("apelle.youtube.search.cache").tag("tier", tier).tag("result", result).counter()
+                .count();
+    }
+
+    @Test
+    void shouldServeCachedPagesFromMemory() {
+        final String query = "local cache " + UUID.randomUUID();
+
+        youtubeService.search(query, pageRequest(null)).await().indefinitely();
+
+        final double localHits = cacheLookups("local", "hit");
+        final double redisLookups = cacheLookups("redis", "hit") + cacheLookups("redis", "miss");
+
+        final var result = youtubeService.search(query, pageRequest("1")).await().indefinitely();
+
+        // Both the state of the search and the page results
+        assertEquals(localHits + 2, cacheLookups("local", "hit"));
+        assertEquals(redisLookups, cacheLookups("redis", "hit") + cacheLookups("redis", "miss"));
+        assertEquals(query + " n. 5", result.getItems().get(0).getName());
+    }
+
+    @Test
+    void shouldMigrateLegacySearches() {
+        final String query = "legacy " + UUID.randomUUID();
+        final String key = YoutubeService.class.getName() + ":search:" + query;
+
+        final ArrayList<SearchedSongQueryDto> found = new ArrayList<>();
+        for (final var item : youtubeService.search("legacy source " + query, pageRequest(null)).await()
+                .indefinitely().getItems()) {
+            found.add(item);
+        }
+        redisDataSource.value(CachedYoutubeSearch.class).set(key, new CachedYoutubeSearch(found, found.size(), null),
+                new SetArgs().ex(Duration.ofMinutes(1)));
+        final int searchRequests = youtubeApiClientMock.getSearchRequests().size();
+
+        final var result = youtubeService.search(query, pageRequest(null)).await().indefinitely();
+
+        assertEquals(searchRequests, youtubeApiClientMock.getSearchRequests().size());
+        assertEquals(found, result.getItems());
+        assertNull(redisDataSource.value(CachedYoutubeSearch.class).get(key));
+    }
+
+    @Test
+    void shouldLoadKnownThumbnailsFromTheCache() throws Throwable {
+        final YoutubeSongAddDto songAdd = YoutubeSongAddDto.builder()
+                .videoId(YoutubeApiClientMock.RESPONSES.keySet().iterator().next()).build();
+        QuarkusTransaction.requiringNew().run(() -> {
+            try {
+                youtubeService.fromDto(songAdd).persist();
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        // Fill the cache
+        QuarkusTransaction.requiringNew().call(() -> youtubeService.fromDto(songAdd).getThumbnails().size());
+
+        final Statistics statistics = sessionFactory.getStatistics();
+        final long cacheHits = statistics.getSecondLevelCacheHitCount();
+
+        // Only the song itself is read from the database
+        final int thumbnails = QueryBudget.atMost(sessionFactory, 1).check("Finding a known song",
+                () -> QuarkusTransaction.requiringNew()
+                        .call(() -> youtubeService.fromDto(songAdd).getThumbnails().size()));
+
+        assertTrue(thumbnails > 0);
+        assertTrue(statistics.getSecondLevelCacheHitCount() > cacheHits);
+    }
+}
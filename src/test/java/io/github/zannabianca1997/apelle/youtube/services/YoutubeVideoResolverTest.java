@@ -0,0 +1,108 @@
+package io.github.zannabianca1997.apelle.youtube.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.github.zannabianca1997.apelle.youtube.clients.YoutubeApiClientMock;
+import io.github.zannabianca1997.apelle.youtube.dtos.YoutubeVideoDataDto;
+import io.github.zannabianca1997.apelle.youtube.exceptions.YoutubeVideoNotFoundException;
+import io.github.zannabianca1997.apelle.youtube.services.YoutubeQuotaManager.Priority;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+@Tag("youtube")
+class YoutubeVideoResolverTest {
+    private final YoutubeVideoResolver youtubeVideoResolver;
+    private final RedisDataSource redisDataSource;
+
+    private YoutubeApiClientMock youtubeApiClientMock;
+
+    public YoutubeVideoResolverTest(final YoutubeVideoResolver youtubeVideoResolver,
+            final RedisDataSource redisDataSource) {
+        this.youtubeVideoResolver = youtubeVideoResolver;
+        this.redisDataSource = redisDataSource;
+    }
+
+    @BeforeEach
+    void installYoutubeMock() {
+        youtubeApiClientMock = YoutubeApiClientMock.install();
+        // Start without cached videos, so every lookup reaches the mock
+        redisDataSource.key().del(YoutubeApiClientMock.RESPONSES.keySet().stream()
+                .map(YoutubeVideoCache::key).toArray(String[]::new));
+    }
+
+    @Test
+    void shouldBatchConcurrentLookups() throws InterruptedException, ExecutionException {
+        final Map<String, CompletableFuture<YoutubeVideoDataDto>> lookups = YoutubeApiClientMock.RESPONSES.keySet()
+                .stream()
+                .collect(Collectors.toMap(videoId -> videoId, youtubeVideoResolver::resolve));
+
+        for (final var lookup : lookups.entrySet()) {
+            assertEquals(YoutubeApiClientMock.RESPONSES.get(lookup.getKey()).unwrapSingle(), lookup.getValue().get());
+        }
+
+        assertEquals(1, youtubeApiClientMock.getDataByIdsRequests().size());
+        assertEquals(lookups.size(), youtubeApiClientMock.getDataByIdsRequests().get(0).size());
+    }
+
+    @Test
+    void shouldDeduplicateLookups() throws InterruptedException, ExecutionException {
+        final String videoId = YoutubeApiClientMock.RESPONSES.keySet().iterator().next();
+
+        final var first = youtubeVideoResolver.resolve(videoId);
+        final var second = youtubeVideoResolver.resolve(videoId);
+
+        assertEquals(first.get(), second.get());
+        assertEquals(List.of(List.of(videoId)), youtubeApiClientMock.getDataByIdsRequests());
+    }
+
+    @Test
+    void shouldReportNotFound() {
+        final String videoId = YoutubeApiClientMock.RESPONSES.keySet().iterator().next();
+
+        final var found = youtubeVideoResolver.resolve(videoId);
+        final var missing = youtubeVideoResolver.resolve("doesNotExist");
+
+        assertEquals(YoutubeApiClientMock.RESPONSES.get(videoId).unwrapSingle(), found.join());
+        final ExecutionException thrown = assertThrows(ExecutionException.class, missing::get);
+        assertInstanceOf(YoutubeVideoNotFoundException.class, thrown.getCause());
+
+        assertEquals(1, youtubeApiClientMock.getDataByIdsRequests().size());
+    }
+
+    @Test
+    void shouldServeCachedVideos() throws InterruptedException, ExecutionException {
+        final String videoId = YoutubeApiClientMock.RESPONSES.keySet().iterator().next();
+
+        final var first = youtubeVideoResolver.resolve(videoId).get();
+        final var second = youtubeVideoResolver.resolve(videoId).get();
+
+        assertEquals(first, second);
+        assertEquals(List.of(List.of(videoId)), youtubeApiClientMock.getDataByIdsRequests());
+    }
+
+    @Test
+    void shouldResolveSearchedVideosInAdvance() throws InterruptedException, ExecutionException {
+        final String videoId = "search0042";
+        redisDataSource.key().del(YoutubeVideoCache.key(videoId));
+
+        youtubeVideoResolver.enrich(List.of(videoId), Priority.FIRST_PAGE).await().indefinitely();
+        final var resolved = youtubeVideoResolver.resolve(videoId).get();
+
+        assertEquals(YoutubeApiClientMock.searchedVideo(videoId), resolved);
+        // Only the request done in advance
+        assertEquals(List.of(List.of(videoId)), youtubeApiClientMock.getDataByIdsRequests());
+    }
+}